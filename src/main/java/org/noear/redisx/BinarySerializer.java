@@ -0,0 +1,21 @@
+package org.noear.redisx;
+
+import java.lang.reflect.Type;
+
+/**
+ * 二进制序列化接口（直接读写 byte[]，免去 Base64 与字符串转换）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public interface BinarySerializer {
+    /**
+     * 编码
+     */
+    byte[] encodeBytes(Object obj);
+
+    /**
+     * 解码
+     */
+    Object decodeBytes(byte[] bytes, Type type);
+}
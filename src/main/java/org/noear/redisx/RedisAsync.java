@@ -0,0 +1,177 @@
+package org.noear.redisx;
+
+import org.noear.redisx.utils.ThreadUtil;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Redis 异步执行器（并发提交的指令，会自动合并为管道批量发送）
+ * <p>
+ * 结果回调在刷写线程里执行，回调里不要阻塞等待其它异步结果
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisAsync implements AutoCloseable {
+    private final UnifiedJedis jedis;
+    private final ExecutorService executor;
+    private final int maxFlushers;
+    private final int batchSize;
+
+    private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger flushers = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param maxFlushers 最大同时刷写数（即最多占用的连接数）
+     * @param batchSize   单个管道的最大指令数
+     */
+    public RedisAsync(UnifiedJedis jedis, int maxFlushers, int batchSize) {
+        this.jedis = jedis;
+        this.maxFlushers = Math.max(1, maxFlushers);
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = ThreadUtil.newVirtualOrFixed("redisx-async-", this.maxFlushers);
+    }
+
+    /**
+     * 提交指令，并要一个值
+     */
+    public <T> CompletableFuture<T> submit(Function<RedisPipelineSession, Response<T>> command) {
+        Task<T> task = new Task<>(command);
+
+        if (closed) {
+            task.future.completeExceptionally(new IllegalStateException("RedisAsync is closed"));
+        } else {
+            queue.add(task);
+            flushSchedule();
+        }
+
+        return task.future;
+    }
+
+    /**
+     * 提交指令，不返回值
+     */
+    public CompletableFuture<Void> execute(Consumer<RedisPipelineSession> command) {
+        return submit(s -> {
+            command.accept(s);
+            return null;
+        });
+    }
+
+    private void flushSchedule() {
+        while (queue.isEmpty() == false) {
+            int n = flushers.get();
+            if (n >= maxFlushers) {
+                return; //刷写中的线程会继续处理队列
+            }
+
+            if (flushers.compareAndSet(n, n + 1)) {
+                try {
+                    executor.execute(this::flushLoop);
+                } catch (RejectedExecutionException e) {
+                    flushers.decrementAndGet();
+                    failAll(e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                List<Task<?>> batch = new ArrayList<>();
+                Task<?> task;
+                while (batch.size() < batchSize && (task = queue.poll()) != null) {
+                    batch.add(task);
+                }
+
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                flushDo(batch);
+            }
+        } finally {
+            flushers.decrementAndGet();
+        }
+
+        //避免与提交并发时，遗漏刚入队的指令
+        flushSchedule();
+    }
+
+    private void flushDo(List<Task<?>> batch) {
+        List<Response<?>> responses = new ArrayList<>(batch.size());
+
+        try (AbstractPipeline pipeline = jedis.pipelined()) {
+            for (Task<?> task : batch) {
+                try {
+                    responses.add(task.command.apply(new RedisPipelineSessionImpl(pipeline)));
+                } catch (Throwable e) {
+                    responses.add(null);
+                    task.future.completeExceptionally(e);
+                }
+            }
+
+            pipeline.sync();
+        } catch (Throwable e) {
+            for (Task<?> task : batch) {
+                task.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(responses.get(i));
+        }
+    }
+
+    private void failAll(Throwable e) {
+        Task<?> task;
+        while ((task = queue.poll()) != null) {
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        closed = true;
+
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        failAll(new IllegalStateException("RedisAsync is closed"));
+    }
+
+    private static class Task<T> {
+        final Function<RedisPipelineSession, Response<T>> command;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(Function<RedisPipelineSession, Response<T>> command) {
+            this.command = command;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Response<?> response) {
+            if (future.isDone()) {
+                return;
+            }
+
+            try {
+                future.complete(response == null ? null : (T) response.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -2,14 +2,24 @@ package org.noear.redisx;
 
 import org.noear.redisx.plus.*;
 import org.noear.redisx.utils.SerializerDefault;
+import org.noear.redisx.utils.SingleFlight;
+import org.noear.redisx.utils.ThreadUtil;
 import org.noear.redisx.utils.TextUtil;
 import redis.clients.jedis.*;
 
 import java.net.URI;
 import java.time.Duration;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -25,6 +35,67 @@ public class RedisClient implements AutoCloseable {
      */
     private UnifiedJedis unifiedJedis;
     private Serializer serializer = new SerializerDefault();
+    private BinarySerializer binarySerializer = new SerializerDefault();
+    /**
+     * 写入与过期合并为一次往返（管道模式）
+     */
+    private boolean expirePipelined;
+    /**
+     * 服务端不支持 RPOP count（redis 6.2 之前；按客户端记录，不影响连接其它服务端的客户端）
+     */
+    private final AtomicBoolean listPopCountUnsupported = new AtomicBoolean();
+    /**
+     * 异步执行器（延迟构建）
+     */
+    private volatile RedisAsync async;
+    /**
+     * 单飞执行（进程内加载合并）
+     */
+    private final SingleFlight singleFlight = new SingleFlight();
+    /**
+     * 调度器（延迟构建）
+     */
+    private volatile ScheduledExecutorService scheduler;
+    /**
+     * 租约调度器（延迟构建）
+     */
+    private volatile ScheduledExecutorService leaseScheduler;
+    /**
+     * 后台工作线程（延迟构建）
+     */
+    private volatile ExecutorService worker;
+    /**
+     * 按名字共享的定时任务（同名只调度一个）
+     */
+    private final Map<String, ScheduledFuture<?>> sharedTasks = new ConcurrentHashMap<>();
+    /**
+     * 随客户端关闭的资源
+     */
+    private final Set<AutoCloseable> resources = ConcurrentHashMap.newKeySet();
+    /**
+     * 锁通知器（延迟构建）
+     */
+    private volatile RedisLockNotifier lockNotifier;
+    /**
+     * 计数缓冲（延迟构建）
+     */
+    private volatile RedisCounterBuffer counterBuffer;
+    /**
+     * 订阅管理器（延迟构建）
+     */
+    private volatile RedisSubscriber subscriber;
+    /**
+     * 批量发布器（延迟构建）
+     */
+    private volatile RedisPublisher publisher;
+    /**
+     * 分片订阅管理器（延迟构建）
+     */
+    private volatile RedisShardedSubscriber shardedSubscriber;
+    /**
+     * 分片批量发布器（延迟构建）
+     */
+    private volatile RedisPublisher shardedPublisher;
 
     public Serializer serializer() {
         return serializer;
@@ -40,6 +111,44 @@ public class RedisClient implements AutoCloseable {
         }
     }
 
+    /**
+     * 二进制序列化（用于 byte[] 读写）
+     *
+     * @since 1.9
+     */
+    public BinarySerializer binarySerializer() {
+        return binarySerializer;
+    }
+
+    /**
+     * 设置二进制序列化
+     *
+     * @since 1.9
+     */
+    public void binarySerializer(BinarySerializer binarySerializer) {
+        if (binarySerializer != null) {
+            this.binarySerializer = binarySerializer;
+        }
+    }
+
+    /**
+     * 写入与过期是否合并为一次往返（管道模式）
+     *
+     * @since 1.9
+     */
+    public boolean expirePipelined() {
+        return expirePipelined;
+    }
+
+    /**
+     * 设置写入与过期是否合并为一次往返（管道模式）
+     *
+     * @since 1.9
+     */
+    public void expirePipelined(boolean expirePipelined) {
+        this.expirePipelined = expirePipelined;
+    }
+
     public RedisClient(Properties prop) {
         String db = prop.getProperty("db");
 
@@ -71,6 +180,24 @@ public class RedisClient implements AutoCloseable {
             }
         }
 
+        String binarySerializerStr = prop.getProperty("binarySerializer");
+        if (TextUtil.isEmpty(binarySerializerStr) == false) {
+            prop.remove("binarySerializer");
+            try {
+                Class<?> serializerClz = Class.forName(binarySerializerStr);
+                BinarySerializer serializerNew = (BinarySerializer) serializerClz.getDeclaredConstructor().newInstance();
+                binarySerializer(serializerNew);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        String expirePipelinedStr = prop.getProperty("expirePipelined");
+        if (TextUtil.isEmpty(expirePipelinedStr) == false) {
+            prop.remove("expirePipelined");
+            expirePipelined(Boolean.parseBoolean(expirePipelinedStr));
+        }
+
         //1.转换参数
         String server = prop.getProperty("server");
         String user = prop.getProperty("user");
@@ -224,13 +351,280 @@ public class RedisClient implements AutoCloseable {
         }
     }
 
+    /**
+     * 打开管道会话（指令排队，结束时一次性发送）
+     *
+     * @since 1.9
+     */
+    public void pipelined(Consumer<RedisPipelineSession> using) {
+        try (RedisPipelineSession session = openPipeline()) {
+            using.accept(session);
+        }
+    }
+
     ////////////////////
 
     /**
      * 打开会话（需要自己关闭）
      */
     public RedisSession openSession() {
-        return new RedisSessionImpl(this.unifiedJedis);
+        return new RedisSessionImpl(this.unifiedJedis, this.expirePipelined, this.listPopCountUnsupported);
+    }
+
+    /**
+     * 打开管道会话（需要自己关闭；关闭时发送所有排队的指令）
+     *
+     * @since 1.9
+     */
+    public RedisPipelineSession openPipeline() {
+        return new RedisPipelineSessionImpl(this.unifiedJedis.pipelined());
+    }
+
+    /**
+     * 获取异步执行器（并发提交的指令，会自动合并为管道批量发送）
+     *
+     * @since 1.9
+     */
+    public RedisAsync async() {
+        if (async == null) {
+            synchronized (this) {
+                if (async == null) {
+                    async = new RedisAsync(this.unifiedJedis, 4, 512);
+                }
+            }
+        }
+
+        return async;
+    }
+
+    /**
+     * 获取单飞执行（进程内同一个 key 的加载合并）
+     *
+     * @since 1.9
+     */
+    public SingleFlight singleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * 获取调度器（客户端内共享，单线程，只负责定时；有 I/O 的任务用 scheduleOnWorker 转到工作线程执行）
+     *
+     * @since 1.9
+     */
+    public ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            synchronized (this) {
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(ThreadUtil.daemonFactory("redisx-scheduler-"));
+                }
+            }
+        }
+
+        return scheduler;
+    }
+
+    /**
+     * 获取租约调度器（锁看门狗、雪花节点号心跳等续期专用；不会被其它后台任务拖慢）
+     *
+     * @since 1.9
+     */
+    public ScheduledExecutorService leaseScheduler() {
+        if (leaseScheduler == null) {
+            synchronized (this) {
+                if (leaseScheduler == null) {
+                    leaseScheduler = Executors.newScheduledThreadPool(2, ThreadUtil.daemonFactory("redisx-lease-"));
+                }
+            }
+        }
+
+        return leaseScheduler;
+    }
+
+    /**
+     * 获取后台工作线程（刷写、回收、预取等有 I/O 的后台任务；有虚拟线程时用虚拟线程）
+     *
+     * @since 1.9
+     */
+    public ExecutorService worker() {
+        if (worker == null) {
+            synchronized (this) {
+                if (worker == null) {
+                    worker = ThreadUtil.newVirtualOrFixed("redisx-worker-", Math.max(2, Runtime.getRuntime().availableProcessors()));
+                }
+            }
+        }
+
+        return worker;
+    }
+
+    /**
+     * 延时后在工作线程上执行（调度器只负责定时）
+     *
+     * @since 1.9
+     */
+    public ScheduledFuture<?> scheduleOnWorker(Runnable task, long delay, TimeUnit unit) {
+        return scheduler().schedule(() -> {
+            try {
+                worker().execute(task);
+            } catch (RuntimeException e) {
+                //工作线程已关闭
+            }
+        }, delay, unit);
+    }
+
+    /**
+     * 定时在工作线程上执行（调度器只负责定时；上一次还没执行完时，跳过本次）
+     *
+     * @since 1.9
+     */
+    public ScheduledFuture<?> scheduleOnWorkerWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        AtomicBoolean running = new AtomicBoolean();
+
+        return scheduler().scheduleWithFixedDelay(() -> {
+            if (running.compareAndSet(false, true)) {
+                try {
+                    worker().execute(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            running.set(false);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    //工作线程已关闭
+                    running.set(false);
+                }
+            }
+        }, initialDelay, delay, unit);
+    }
+
+    /**
+     * 按名字共享的定时任务（在工作线程上执行；同名已调度时不再调度，随客户端关闭）
+     *
+     * @since 1.9
+     */
+    public void scheduleSharedOnWorkerWithFixedDelay(String name, Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        sharedTasks.computeIfAbsent(name, k -> scheduleOnWorkerWithFixedDelay(task, initialDelay, delay, unit));
+    }
+
+    /**
+     * 登记随客户端关闭的资源（先于计数缓冲、发布器等关闭，其关闭时发出的内容仍能送出）
+     *
+     * @since 1.9
+     */
+    public void register(AutoCloseable resource) {
+        resources.add(resource);
+    }
+
+    /**
+     * 取消登记（资源自己关闭时调用）
+     *
+     * @since 1.9
+     */
+    public void unregister(AutoCloseable resource) {
+        resources.remove(resource);
+    }
+
+    /**
+     * 获取计数缓冲（每秒刷写，或累计 10000 次增量时提前刷写；关闭客户端时会刷写剩余的）
+     *
+     * @since 1.9
+     */
+    public RedisCounterBuffer counterBuffer() {
+        if (counterBuffer == null) {
+            synchronized (this) {
+                if (counterBuffer == null) {
+                    counterBuffer = new RedisCounterBuffer(this, 1000, 10_000);
+                }
+            }
+        }
+
+        return counterBuffer;
+    }
+
+    /**
+     * 获取订阅管理器（客户端内所有频道共用一个订阅连接；锁通知、近端缓存失效等也用它）
+     *
+     * @since 1.9
+     */
+    public RedisSubscriber subscriber() {
+        if (subscriber == null) {
+            synchronized (this) {
+                if (subscriber == null) {
+                    subscriber = new RedisSubscriber(this);
+                }
+            }
+        }
+
+        return subscriber;
+    }
+
+    /**
+     * 获取批量发布器（每批最多 1000 条，最长等待 5 毫秒；关闭客户端时发送完已入队的）
+     *
+     * @since 1.9
+     */
+    public RedisPublisher publisher() {
+        if (publisher == null) {
+            synchronized (this) {
+                if (publisher == null) {
+                    publisher = new RedisPublisher(this, 1000, 5, false);
+                }
+            }
+        }
+
+        return publisher;
+    }
+
+    /**
+     * 获取分片订阅管理器（每个分片一个订阅连接；槽迁移时自动改订。需要 redis 7.0+）
+     *
+     * @since 1.9
+     */
+    public RedisShardedSubscriber shardedSubscriber() {
+        if (shardedSubscriber == null) {
+            synchronized (this) {
+                if (shardedSubscriber == null) {
+                    shardedSubscriber = new RedisShardedSubscriber(this);
+                }
+            }
+        }
+
+        return shardedSubscriber;
+    }
+
+    /**
+     * 获取分片批量发布器（SPUBLISH；每批最多 1000 条，最长等待 5 毫秒。需要 redis 7.0+）
+     *
+     * @since 1.9
+     */
+    public RedisPublisher shardedPublisher() {
+        if (shardedPublisher == null) {
+            synchronized (this) {
+                if (shardedPublisher == null) {
+                    shardedPublisher = new RedisPublisher(this, 1000, 5, true);
+                }
+            }
+        }
+
+        return shardedPublisher;
+    }
+
+    /**
+     * 获取锁通知器（客户端内共享一个订阅）
+     *
+     * @since 1.9
+     */
+    public RedisLockNotifier getLockNotifier() {
+        if (lockNotifier == null) {
+            synchronized (this) {
+                if (lockNotifier == null) {
+                    lockNotifier = new RedisLockNotifier(this);
+                }
+            }
+        }
+
+        return lockNotifier;
     }
 
     ////////////////////
@@ -250,6 +644,42 @@ public class RedisClient implements AutoCloseable {
     }
 
 
+    /**
+     * 获取一个缓冲原子数（增量先在本地累加，批量刷写）
+     *
+     * @since 1.9
+     */
+    public RedisBufferedAtomic getBufferedAtomic(String atomicName) {
+        return new RedisBufferedAtomic(this, counterBuffer(), atomicName);
+    }
+
+    /**
+     * 获取一个缓冲原子数（增量先在本地累加，批量刷写）
+     *
+     * @since 1.9
+     */
+    public RedisBufferedAtomic getBufferedAtomic(String atomicName, int inSeconds) {
+        return new RedisBufferedAtomic(this, counterBuffer(), atomicName, inSeconds);
+    }
+
+    /**
+     * 获取一个分条原子数（增量分散到多个子键，避免热点键）
+     *
+     * @since 1.9
+     */
+    public RedisStripedAtomic getStripedAtomic(String atomicName, int stripes) {
+        return new RedisStripedAtomic(this, atomicName, stripes);
+    }
+
+    /**
+     * 获取一个分条原子数（增量分散到多个子键，避免热点键）
+     *
+     * @since 1.9
+     */
+    public RedisStripedAtomic getStripedAtomic(String atomicName, int stripes, int inSeconds) {
+        return new RedisStripedAtomic(this, atomicName, stripes, inSeconds);
+    }
+
     /**
      * 获取一个总线
      */
@@ -257,6 +687,25 @@ public class RedisClient implements AutoCloseable {
         return new RedisBus(this);
     }
 
+    /**
+     * 获取一个流总线（每个主题最多保留约 100000 条消息）
+     *
+     * @since 1.9
+     */
+    public RedisStreamBus getStreamBus() {
+        return new RedisStreamBus(this, 100_000);
+    }
+
+    /**
+     * 获取一个流总线
+     *
+     * @param maxLen 每个主题保留的最大消息数（近似裁剪）
+     * @since 1.9
+     */
+    public RedisStreamBus getStreamBus(long maxLen) {
+        return new RedisStreamBus(this, maxLen);
+    }
+
     /**
      * 获取一个存储桶
      */
@@ -264,6 +713,15 @@ public class RedisClient implements AutoCloseable {
         return new RedisBucket(this);
     }
 
+    /**
+     * 获取一个存储桶（带近端缓存）
+     *
+     * @since 1.9
+     */
+    public RedisBucket getBucket(RedisNearCache nearCache) {
+        return new RedisBucket(this, nearCache);
+    }
+
     /**
      * 获取一个哈希（永久存在）
      */
@@ -278,6 +736,27 @@ public class RedisClient implements AutoCloseable {
         return new RedisHash(this, hashName, inSeconds);
     }
 
+    /**
+     * 获取一个缓存哈希（本地快照读取，写入攒批；每批最多 100 个字段，最长等待 10 毫秒，快照 60 秒整体重新加载）
+     *
+     * @since 1.9
+     */
+    public RedisCachedHash getCachedHash(String hashName) {
+        return new RedisCachedHash(this, hashName, -1, 100, 10, 60);
+    }
+
+    /**
+     * 获取一个缓存哈希
+     *
+     * @param batchSize      缓冲写入的最大字段数
+     * @param flushMillis    缓冲写入的最长等待毫秒数
+     * @param refreshSeconds 快照整体重新加载的秒数
+     * @since 1.9
+     */
+    public RedisCachedHash getCachedHash(String hashName, int inSeconds, int batchSize, long flushMillis, int refreshSeconds) {
+        return new RedisCachedHash(this, hashName, inSeconds, batchSize, flushMillis, refreshSeconds);
+    }
+
     /**
      * 获取一个锁
      */
@@ -285,6 +764,24 @@ public class RedisClient implements AutoCloseable {
         return new RedisLock(this, lockName);
     }
 
+    /**
+     * 获取一个可重入锁
+     *
+     * @since 1.9
+     */
+    public RedisReentrantLock getReentrantLock(String lockName) {
+        return new RedisReentrantLock(this, lockName);
+    }
+
+    /**
+     * 获取一个读写锁
+     *
+     * @since 1.9
+     */
+    public RedisReadWriteLock getReadWriteLock(String lockName) {
+        return new RedisReadWriteLock(this, lockName);
+    }
+
     /**
      * 获取一个队列
      */
@@ -292,6 +789,17 @@ public class RedisClient implements AutoCloseable {
         return new RedisQueue(this, queueName);
     }
 
+    /**
+     * 获取一个可靠队列（获取后要复用，不用时关闭以停止回收任务）
+     *
+     * @param consumerId        消费者Id
+     * @param visibilitySeconds 可见超时（推出后超过此时间未确认，会被放回队列）
+     * @since 1.9
+     */
+    public RedisReliableQueue getReliableQueue(String queueName, String consumerId, int visibilitySeconds) {
+        return new RedisReliableQueue(this, queueName, consumerId, visibilitySeconds);
+    }
+
     /**
      * 获取一个列表
      */
@@ -306,10 +814,117 @@ public class RedisClient implements AutoCloseable {
         return new RedisId(this, idName);
     }
 
+    /**
+     * 获取一个分段 Id 生成器（获取后要复用；每个实例各自预留号段）
+     *
+     * @param blockSize 每段数量（用到一半时，后台预取下一段）
+     * @since 1.9
+     */
+    public RedisSegmentId getSegmentId(String idName, long blockSize) {
+        return new RedisSegmentId(this, idName, blockSize, 0.5D);
+    }
+
+    /**
+     * 获取一个分段 Id 生成器（获取后要复用；每个实例各自预留号段）
+     *
+     * @param blockSize     每段数量
+     * @param prefetchRatio 用到多少比例时，预取下一段（0~1）
+     * @since 1.9
+     */
+    public RedisSegmentId getSegmentId(String idName, long blockSize, double prefetchRatio) {
+        return new RedisSegmentId(this, idName, blockSize, prefetchRatio);
+    }
+
+    /**
+     * 获取一个雪花 Id 生成器（获取后要复用，不用时关闭以释放工作节点号；租期 30 秒）
+     *
+     * @since 1.9
+     */
+    public RedisSnowflakeId getSnowflakeId(String idName) {
+        return new RedisSnowflakeId(this, idName, 30);
+    }
+
+    /**
+     * 获取一个雪花 Id 生成器（获取后要复用，不用时关闭以释放工作节点号）
+     *
+     * @param leaseSeconds 工作节点号租期
+     * @since 1.9
+     */
+    public RedisSnowflakeId getSnowflakeId(String idName, int leaseSeconds) {
+        return new RedisSnowflakeId(this, idName, leaseSeconds);
+    }
+
     @Override
     public void close() throws Exception {
+        //某一项关闭失败（如服务端已不可用，刷写失败），其余的仍要关闭；最后抛出第一个异常
+        Exception error = null;
+
+        for (AutoCloseable resource : resources.toArray(new AutoCloseable[0])) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                error = (error == null ? e : error);
+            }
+        }
+
+        if (counterBuffer != null) {
+            try {
+                counterBuffer.close();
+            } catch (Exception e) {
+                error = (error == null ? e : error);
+            }
+        }
+
+        if (publisher != null) {
+            try {
+                publisher.close();
+            } catch (Exception e) {
+                error = (error == null ? e : error);
+            }
+        }
+
+        if (shardedPublisher != null) {
+            try {
+                shardedPublisher.close();
+            } catch (Exception e) {
+                error = (error == null ? e : error);
+            }
+        }
+
+        if (lockNotifier != null) {
+            lockNotifier.close();
+        }
+
+        if (subscriber != null) {
+            subscriber.close();
+        }
+
+        if (shardedSubscriber != null) {
+            shardedSubscriber.close();
+        }
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+
+        if (leaseScheduler != null) {
+            leaseScheduler.shutdownNow();
+        }
+
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+
+        if (async != null) {
+            async.close();
+        }
+
         if (unifiedJedis != null) {
             unifiedJedis.close();
         }
+
+        if (error != null) {
+            throw error;
+        }
     }
 }
@@ -0,0 +1,304 @@
+package org.noear.redisx;
+
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 管道会话（指令先排队，关闭或 sync 时一次性发送；读取结果需在发送之后）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public interface RedisPipelineSession extends AutoCloseable {
+    /**
+     * 关闭会话（发送所有排队的指令，并释放连接）
+     */
+    @Override
+    void close();
+
+    /**
+     * 发送所有排队的指令（之后可读取 Response）
+     */
+    void sync();
+
+    /**
+     * 获取jedis原始管道对象
+     */
+    AbstractPipeline pipeline();
+
+    /**
+     * 删除一批主键
+     */
+    Response<Long> deleteKeys(Collection<String> keys);
+
+    /**
+     * 检查一批主键是否存在
+     */
+    Response<Long> existsKeys(Collection<String> keys);
+
+    /**
+     * 主键
+     */
+    RedisPipelineSession key(String key);
+
+    /**
+     * 设置超时（一般跟在 key 后面）
+     *
+     * @param seconds 秒数（+num 过期秒数；-1永不过期）
+     */
+    RedisPipelineSession expire(int seconds);
+
+    /**
+     * 设置超时（一般跟在 key 后面）
+     *
+     * @param time 时间（-1永不过期）
+     * @param unit 单位
+     */
+    RedisPipelineSession expire(long time, TimeUnit unit);
+
+    /**
+     * 设置为持续存在（即不超时）
+     */
+    RedisPipelineSession persist();
+
+    /**
+     * 尝试延期
+     */
+    void delay();
+
+    /**
+     * 尝试延期
+     */
+    void delay(int seconds);
+
+    /**
+     * 尝试延期
+     *
+     * @param time 时间（-1永不过期）
+     * @param unit 单位
+     */
+    void delay(long time, TimeUnit unit);
+
+    /**
+     * 主键是否存在
+     */
+    Response<Boolean> exists();
+
+    /**
+     * 主键删除
+     */
+    Response<Long> delete();
+
+    /**
+     * 获取剩余时间
+     */
+    Response<Long> ttl();
+
+    /**
+     * 设置主键对应的值
+     */
+    RedisPipelineSession set(String val);
+
+    /**
+     * 设置主键对应的值
+     */
+    RedisPipelineSession set(long val);
+
+    /**
+     * 设置主键对应的值（如果不存在key）
+     */
+    RedisPipelineSession setIfAbsent(String val);
+
+    /**
+     * 获取主键对应的值
+     */
+    Response<String> get();
+
+    /**
+     * 获取多个主键值
+     */
+    Response<List<String>> getMore(String... keys);
+
+    /**
+     * 主键对应的值，原子增量
+     */
+    Response<Long> incr(long num);
+
+    /**
+     * 主键对应的值，原子增量
+     */
+    Response<Long> incr();
+
+    /**
+     * 主键对应的值，原子减量
+     */
+    Response<Long> decr();
+
+    //------------------
+    //hash::
+
+    Response<Boolean> hashHas(String field);
+
+    /**
+     * 哈希字段删除
+     */
+    Response<Long> hashDel(String... fields);
+
+    /**
+     * 哈希字段设置
+     */
+    RedisPipelineSession hashSet(String field, String val);
+
+    /**
+     * 哈希字段设置
+     */
+    RedisPipelineSession hashSet(String field, long val);
+
+    /**
+     * 哈希字段批量设置
+     */
+    RedisPipelineSession hashSetAll(Map<? extends String, ? extends String> map);
+
+    /**
+     * 哈希字段初始化（如果字段不存在；1 表示成功）
+     */
+    Response<Long> hashInit(String field, String val);
+
+    /**
+     * 哈希字段增量操作
+     */
+    Response<Long> hashIncr(String field, long num);
+
+    /**
+     * 哈希字段获取
+     */
+    Response<String> hashGet(String field);
+
+    /**
+     * 哈希字段多个获取
+     */
+    Response<List<String>> hashGetMore(String... fields);
+
+    /**
+     * 哈希获取所有字段
+     */
+    Response<Map<String, String>> hashGetAll();
+
+    /**
+     * 哈希获取所有字段名
+     */
+    Response<Set<String>> hashGetAllKeys();
+
+    /**
+     * 哈希获取所有字段值
+     */
+    Response<List<String>> hashGetAllValues();
+
+    /**
+     * 哈希长度
+     */
+    Response<Long> hashLen();
+
+    //------------------
+    //list::
+
+    /**
+     * 列表添加项
+     */
+    RedisPipelineSession listAdd(String item);
+
+    /**
+     * 列表添加项
+     */
+    RedisPipelineSession listAdd(long item);
+
+    /**
+     * 列表设置位置对应的项
+     */
+    RedisPipelineSession listSet(long index, String newValue);
+
+    /**
+     * 列表删除项
+     * <p>
+     * count > 0 : 从表头开始向表尾搜索，移除与 VALUE 相等的元素，数量为 COUNT 。
+     * count < 0 : 从表尾开始向表头搜索，移除与 VALUE 相等的元素，数量为 COUNT 的绝对值。
+     * count = 0 : 移除表中所有与 VALUE 相等的值。
+     */
+    RedisPipelineSession listDel(String item, int count);
+
+    /**
+     * 列表删除项
+     */
+    RedisPipelineSession listDel(String item);
+
+    /**
+     * 列表批量添加项
+     */
+    RedisPipelineSession listAddRange(Collection<? extends String> items);
+
+    /**
+     * 列表冒出
+     */
+    Response<String> listPop();
+
+    /**
+     * 列表预览
+     */
+    Response<String> listPeek();
+
+    /**
+     * 列表获取项（先进先出，从right 取）
+     */
+    Response<String> listGet(long index);
+
+    /**
+     * 列表分页获取项（先进先出，从right取）
+     */
+    Response<List<String>> listGetRange(long start, long end);
+
+    Response<List<String>> listGetAll();
+
+    /**
+     * 列表长度
+     */
+    Response<Long> listLen();
+
+    //------------------
+    //Sset::
+    Response<Long> setAdd(String item);
+
+    Response<Long> setDel(String item);
+
+    RedisPipelineSession setAddRange(Collection<String> items);
+
+    Response<Long> setLen();
+
+    Response<String> setPop();
+
+    //------------------
+    //Sort set::
+    RedisPipelineSession zsetAdd(double score, String item);
+
+    Response<Long> zsetDel(String... items);
+
+    Response<Long> zsetLen();
+
+    Response<List<String>> zsetGet(long start, long end);
+
+    Response<Long> zsetIdx(String item);
+
+    //------------------
+    //Bus
+    Response<Long> publish(String channel, String message);
+
+    /**
+     * 分片发布（SPUBLISH；集群时只发到频道所在的分片，redis 7.0+）
+     */
+    Response<Long> spublish(String channel, String message);
+}
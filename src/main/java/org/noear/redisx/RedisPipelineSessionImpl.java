@@ -0,0 +1,574 @@
+package org.noear.redisx;
+
+import org.noear.redisx.utils.AssertUtil;
+import redis.clients.jedis.*;
+import redis.clients.jedis.params.SetParams;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 管道会话
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisPipelineSessionImpl implements RedisPipelineSession {
+    private final AbstractPipeline pipeline;
+
+    protected RedisPipelineSessionImpl(AbstractPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * 关闭会话（发送所有排队的指令，并释放连接）
+     */
+    @Override
+    public void close() {
+        pipeline.close();
+    }
+
+    /**
+     * 发送所有排队的指令
+     */
+    @Override
+    public void sync() {
+        pipeline.sync();
+    }
+
+    private String _key;
+    private long _milliseconds;
+
+    /**
+     * 获取jedis原始管道对象
+     */
+    @Override
+    public AbstractPipeline pipeline() {
+        return pipeline;
+    }
+
+    /**
+     * 删除一批主键
+     */
+    @Override
+    public Response<Long> deleteKeys(Collection<String> keys) {
+        String[] keyAry = new String[keys.size()];
+        return pipeline.del(keys.toArray(keyAry));
+    }
+
+    /**
+     * 检查一批主键是否存在
+     */
+    @Override
+    public Response<Long> existsKeys(Collection<String> keys) {
+        String[] keyAry = new String[keys.size()];
+        return pipeline.exists(keys.toArray(keyAry));
+    }
+
+    /**
+     * 主键
+     */
+    @Override
+    public RedisPipelineSessionImpl key(String key) {
+        AssertUtil.notEmpty(key, "redis key cannot be empty");
+        _key = key;
+        return this;
+    }
+
+    /**
+     * 设置超时（一般跟在 key 后面）
+     *
+     * @param seconds 秒数（+num 过期秒数；-1永不过期）
+     */
+    @Override
+    public RedisPipelineSessionImpl expire(int seconds) {
+        if (seconds == -1) {
+            _milliseconds = -1;
+        } else {
+            _milliseconds = TimeUnit.SECONDS.toMillis(seconds);
+        }
+        return this;
+    }
+
+    @Override
+    public RedisPipelineSessionImpl expire(long time, TimeUnit unit) {
+        if (time == -1) {
+            _milliseconds = -1;
+        } else {
+            _milliseconds = unit.toMillis(time);
+        }
+        return this;
+    }
+
+    /**
+     * 设置为持续存在（即不超时）
+     */
+    @Override
+    public RedisPipelineSessionImpl persist() {
+        _milliseconds = -1;
+        return this;
+    }
+
+    private void expirePush() {
+        //+x: 具体时间
+        if (_milliseconds > 0) {
+            pipeline.pexpire(_key, _milliseconds);
+        }
+
+        //-1: 永久
+        if (_milliseconds == -1) {
+            pipeline.persist(_key); //持续存在
+        }
+
+        //-2:过期或已删
+    }
+
+    /**
+     * 尝试延期
+     */
+    @Override
+    public void delay() {
+        expirePush();
+    }
+
+    /**
+     * 尝试延期
+     */
+    @Override
+    public void delay(int seconds) {
+        expire(seconds);
+        expirePush();
+    }
+
+    @Override
+    public void delay(long time, TimeUnit unit) {
+        expire(time, unit);
+        expirePush();
+    }
+
+    /**
+     * 主键是否存在
+     */
+    @Override
+    public Response<Boolean> exists() {
+        return pipeline.exists(_key);
+    }
+
+    /**
+     * 主键删除
+     */
+    @Override
+    public Response<Long> delete() {
+        return pipeline.del(_key);
+    }
+
+    /**
+     * 获取剩余时间
+     */
+    @Override
+    public Response<Long> ttl() {
+        return pipeline.ttl(_key);
+    }
+
+    //------
+    //value::
+
+    /**
+     * 设置主键对应的值
+     */
+    @Override
+    public RedisPipelineSessionImpl set(String val) {
+        AssertUtil.notNull(val, "redis value cannot be null");
+
+        if (_milliseconds > 0) {
+            pipeline.psetex(_key, _milliseconds, val);
+        } else {
+            pipeline.set(_key, val);
+        }
+
+        return this;
+    }
+
+    /**
+     * 设置主键对应的值
+     */
+    @Override
+    public RedisPipelineSessionImpl set(long val) {
+        return set(String.valueOf(val));
+    }
+
+    /**
+     * 设置主键对应的值（如果不存在key）
+     */
+    @Override
+    public RedisPipelineSessionImpl setIfAbsent(String val) {
+        AssertUtil.notNull(val, "redis value cannot be null");
+
+        SetParams options = new SetParams().nx();
+        if (_milliseconds > 0) {
+            options.px(_milliseconds);
+        }
+
+        pipeline.set(_key, val, options);
+
+        return this;
+    }
+
+    /**
+     * 获取主键对应的值
+     */
+    @Override
+    public Response<String> get() {
+        return pipeline.get(_key);
+    }
+
+    /**
+     * 获取多个主键值
+     */
+    @Override
+    public Response<List<String>> getMore(String... keys) {
+        return pipeline.mget(keys);
+    }
+
+    /**
+     * 主键对应的值，原子增量
+     */
+    @Override
+    public Response<Long> incr(long num) {
+        Response<Long> rst = pipeline.incrBy(_key, num);
+        expirePush();
+
+        return rst;
+    }
+
+    /**
+     * 主键对应的值，原子增量
+     */
+    @Override
+    public Response<Long> incr() {
+        Response<Long> rst = pipeline.incr(_key);
+        expirePush();
+
+        return rst;
+    }
+
+    /**
+     * 主键对应的值，原子减量
+     */
+    @Override
+    public Response<Long> decr() {
+        Response<Long> rst = pipeline.decr(_key);
+        expirePush();
+
+        return rst;
+    }
+
+    //--------
+    //hash::
+
+    @Override
+    public Response<Boolean> hashHas(String field) {
+        return pipeline.hexists(_key, field);
+    }
+
+    /**
+     * 哈希字段删除
+     */
+    @Override
+    public Response<Long> hashDel(String... fields) {
+        return pipeline.hdel(_key, fields);
+    }
+
+    /**
+     * 哈希字段设置
+     */
+    @Override
+    public RedisPipelineSessionImpl hashSet(String field, String val) {
+        pipeline.hset(_key, field, val);
+        expirePush();
+
+        return this;
+    }
+
+    /**
+     * 哈希字段设置
+     */
+    @Override
+    public RedisPipelineSessionImpl hashSet(String field, long val) {
+        return hashSet(field, String.valueOf(val));
+    }
+
+    /**
+     * 哈希字段批量设置
+     */
+    @Override
+    public RedisPipelineSessionImpl hashSetAll(Map<? extends String, ? extends String> map) {
+        Map<String, String> map2 = new HashMap<>(map);
+        pipeline.hset(_key, map2);
+        expirePush();
+
+        return this;
+    }
+
+    /**
+     * 哈希字段初始化（如果字段不存在）
+     */
+    @Override
+    public Response<Long> hashInit(String field, String val) {
+        Response<Long> rst = pipeline.hsetnx(_key, field, val);
+        expirePush();
+
+        return rst;
+    }
+
+    /**
+     * 哈希字段增量操作
+     */
+    @Override
+    public Response<Long> hashIncr(String field, long num) {
+        Response<Long> rst = pipeline.hincrBy(_key, field, num);
+        expirePush();
+
+        return rst;
+    }
+
+    /**
+     * 哈希字段获取
+     */
+    @Override
+    public Response<String> hashGet(String field) {
+        return pipeline.hget(_key, field);
+    }
+
+    /**
+     * 哈希字段多个获取
+     */
+    @Override
+    public Response<List<String>> hashGetMore(String... fields) {
+        return pipeline.hmget(_key, fields);
+    }
+
+    /**
+     * 哈希获取所有字段
+     */
+    @Override
+    public Response<Map<String, String>> hashGetAll() {
+        return pipeline.hgetAll(_key);
+    }
+
+    /**
+     * 哈希获取所有字段名
+     */
+    @Override
+    public Response<Set<String>> hashGetAllKeys() {
+        return pipeline.hkeys(_key);
+    }
+
+    /**
+     * 哈希获取所有字段值
+     */
+    @Override
+    public Response<List<String>> hashGetAllValues() {
+        return pipeline.hvals(_key);
+    }
+
+    /**
+     * 哈希长度
+     */
+    @Override
+    public Response<Long> hashLen() {
+        return pipeline.hlen(_key);
+    }
+
+    //------------------
+    //list::
+
+    /**
+     * 列表添加项
+     */
+    @Override
+    public RedisPipelineSessionImpl listAdd(String item) {
+        pipeline.lpush(_key, item); //左侧压进
+        expirePush();
+
+        return this;
+    }
+
+    /**
+     * 列表添加项
+     */
+    @Override
+    public RedisPipelineSessionImpl listAdd(long item) {
+        return listAdd(String.valueOf(item));
+    }
+
+    /**
+     * 列表设置位置对应的项
+     */
+    @Override
+    public RedisPipelineSessionImpl listSet(long index, String newValue) {
+        pipeline.lset(_key, index, newValue);
+        expirePush();
+
+        return this;
+    }
+
+    /**
+     * 列表删除项
+     */
+    @Override
+    public RedisPipelineSessionImpl listDel(String item, int count) {
+        pipeline.lrem(_key, count, item);
+        expirePush();
+
+        return this;
+    }
+
+    /**
+     * 列表删除项
+     */
+    @Override
+    public RedisPipelineSessionImpl listDel(String item) {
+        return listDel(item, 0);
+    }
+
+    /**
+     * 列表批量添加项
+     */
+    @Override
+    public RedisPipelineSessionImpl listAddRange(Collection<? extends String> items) {
+        pipeline.lpush(_key, items.toArray(new String[items.size()]));
+        expirePush();
+
+        return this;
+    }
+
+    /**
+     * 列表冒出
+     */
+    @Override
+    public Response<String> listPop() {
+        return pipeline.rpop(_key); //右侧推出
+    }
+
+    /**
+     * 列表预览
+     */
+    @Override
+    public Response<String> listPeek() {
+        return pipeline.lindex(_key, -1); //右侧推出（先进先出）
+    }
+
+    /**
+     * 列表获取项（先进先出，从right 取）
+     */
+    @Override
+    public Response<String> listGet(long index) {
+        return pipeline.lindex(_key, index);
+    }
+
+    /**
+     * 列表分页获取项（先进先出，从right取）
+     */
+    @Override
+    public Response<List<String>> listGetRange(long start, long end) {
+        return pipeline.lrange(_key, start, end);
+    }
+
+    @Override
+    public Response<List<String>> listGetAll() {
+        return pipeline.lrange(_key, 0, -1);
+    }
+
+    /**
+     * 列表长度
+     */
+    @Override
+    public Response<Long> listLen() {
+        return pipeline.llen(_key);
+    }
+
+    //------------------
+    //Sset::
+    @Override
+    public Response<Long> setAdd(String item) {
+        Response<Long> rst = pipeline.sadd(_key, item);
+        expirePush();
+
+        return rst;
+    }
+
+    @Override
+    public Response<Long> setDel(String item) {
+        return pipeline.srem(_key, item);
+    }
+
+    @Override
+    public RedisPipelineSessionImpl setAddRange(Collection<String> items) {
+        pipeline.sadd(_key, items.toArray(new String[items.size()]));
+        expirePush();
+
+        return this;
+    }
+
+    @Override
+    public Response<Long> setLen() {
+        return pipeline.scard(_key);
+    }
+
+    @Override
+    public Response<String> setPop() {
+        return pipeline.spop(_key);
+    }
+
+    //------------------
+    //Sort set::
+    @Override
+    public RedisPipelineSessionImpl zsetAdd(double score, String item) {
+        pipeline.zadd(_key, score, item);
+        expirePush();
+
+        return this;
+    }
+
+    @Override
+    public Response<Long> zsetDel(String... items) {
+        return pipeline.zrem(_key, items);
+    }
+
+    @Override
+    public Response<Long> zsetLen() {
+        return pipeline.zcard(_key);
+    }
+
+    @Override
+    public Response<List<String>> zsetGet(long start, long end) {
+        return pipeline.zrange(_key, start, end);
+    }
+
+    @Override
+    public Response<Long> zsetIdx(String item) {
+        return pipeline.zrank(_key, item);
+    }
+
+    //------------------
+    //message::
+    @Override
+    public Response<Long> publish(String channel, String message) {
+        //频道按主键传入，集群管道才能路由到节点（任一节点发布，全集群可收到）
+        CommandArguments args = new CommandArguments(Protocol.Command.PUBLISH)
+                .key(channel)
+                .add(message);
+
+        return pipeline.executeCommand(new CommandObject<>(args, BuilderFactory.LONG));
+    }
+
+    @Override
+    public Response<Long> spublish(String channel, String message) {
+        CommandArguments args = new CommandArguments(Protocol.Command.SPUBLISH)
+                .key(channel)
+                .add(message);
+
+        return pipeline.executeCommand(new CommandObject<>(args, BuilderFactory.LONG));
+    }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 public interface RedisSession extends AutoCloseable {
     /**
@@ -28,6 +29,13 @@ public interface RedisSession extends AutoCloseable {
      */
     Long deleteKeys(Collection<String> keys);
 
+    /**
+     * 非阻塞删除一批主键（UNLINK）
+     *
+     * @since 1.9
+     */
+    Long unlinkKeys(Collection<String> keys);
+
     /**
      * 检查一批主键是否存在
      */
@@ -77,12 +85,21 @@ public interface RedisSession extends AutoCloseable {
     void delay(long time, TimeUnit unit);
 
     /**
-     * 主键扫描
+     * 主键扫描（跟随游标，最多返回 count 个）
      *
      * @param keyPattern 模式（?表示1+, *表示0+）
      */
     List<String> scan(String keyPattern, int count);
 
+    /**
+     * 主键扫描流（按页懒加载，跟随游标直到结束；集群时扫描所有主节点）
+     *
+     * @param keyPattern 模式（?表示1+, *表示0+）
+     * @param pageSize   每页数量（COUNT 提示）
+     * @since 1.9
+     */
+    Stream<String> scanStream(String keyPattern, int pageSize);
+
     /**
      * 主键匹配
      *
@@ -140,6 +157,20 @@ public interface RedisSession extends AutoCloseable {
      */
     String get();
 
+    /**
+     * 设置主键对应的值（二进制）
+     *
+     * @since 1.9
+     */
+    RedisSession setBytes(byte[] val);
+
+    /**
+     * 获取主键对应的值（二进制）
+     *
+     * @since 1.9
+     */
+    byte[] getBytes();
+
     /**
      * 获取主键对应的值，并转为长整型
      */
@@ -178,12 +209,21 @@ public interface RedisSession extends AutoCloseable {
     Boolean hashHas(String field);
 
     /**
-     * 哈希字段扫描
+     * 哈希字段扫描（跟随游标，最多返回 count 个）
      *
      * @param fieldPattern 字段模式（?表示1+, *表示0+）
      */
     List<Map.Entry<String, String>> hashScan(String fieldPattern, int count);
 
+    /**
+     * 哈希字段扫描流（按页懒加载，跟随游标直到结束）
+     *
+     * @param fieldPattern 字段模式（?表示1+, *表示0+）
+     * @param pageSize     每页数量（COUNT 提示）
+     * @since 1.9
+     */
+    Stream<Map.Entry<String, String>> hashScanStream(String fieldPattern, int pageSize);
+
     /**
      * 哈希字段匹配
      */
@@ -224,11 +264,25 @@ public interface RedisSession extends AutoCloseable {
      */
     long hashIncr(String field, long num);
 
+    /**
+     * 哈希字段设置（二进制）
+     *
+     * @since 1.9
+     */
+    RedisSession hashSetBytes(String field, byte[] val);
+
     /**
      * 哈希字段获取
      */
     String hashGet(String field);
 
+    /**
+     * 哈希字段获取（二进制）
+     *
+     * @since 1.9
+     */
+    byte[] hashGetBytes(String field);
+
     /**
      * 哈希字段获取并转为长整型
      */
@@ -308,6 +362,13 @@ public interface RedisSession extends AutoCloseable {
      */
     String listPop();
 
+    /**
+     * 列表批量冒出（redis 6.2+ 为 RPOP count，之前的版本用脚本；没有时返回空列表）
+     *
+     * @since 1.9
+     */
+    List<String> listPop(int count);
+
     /**
      * 列表预览
      */
@@ -362,6 +423,13 @@ public interface RedisSession extends AutoCloseable {
 
     List<String> setScan(String itemPattern, int count);
 
+    /**
+     * 集合扫描流（按页懒加载，跟随游标直到结束）
+     *
+     * @since 1.9
+     */
+    Stream<String> setScanStream(String itemPattern, int pageSize);
+
     boolean setMatch(String itemPattern);
 
     //------------------
@@ -378,6 +446,13 @@ public interface RedisSession extends AutoCloseable {
 
     List<Tuple> zsetScan(String itemPattern, int count);
 
+    /**
+     * 有序集合扫描流（按页懒加载，跟随游标直到结束）
+     *
+     * @since 1.9
+     */
+    Stream<Tuple> zsetScanStream(String itemPattern, int pageSize);
+
     boolean zsetMatch(String itemPattern);
 
     //------------------
@@ -395,6 +470,13 @@ public interface RedisSession extends AutoCloseable {
     //Bus
     long publish(String channel, String message);
 
+    /**
+     * 分片发布（SPUBLISH；集群时只发到频道所在的分片，redis 7.0+）
+     *
+     * @since 1.9
+     */
+    long spublish(String channel, String message);
+
     /**
      * 订阅
      * */
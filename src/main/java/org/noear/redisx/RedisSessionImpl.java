@@ -2,16 +2,26 @@ package org.noear.redisx;
 
 import org.noear.redisx.model.LocalHash;
 import org.noear.redisx.utils.AssertUtil;
+import org.noear.redisx.utils.LuaScript;
+import org.noear.redisx.utils.ScanIterator;
 import org.noear.redisx.utils.TextUtil;
 import redis.clients.jedis.*;
 import redis.clients.jedis.args.GeoUnit;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.params.ScanParams;
 import redis.clients.jedis.params.SetParams;
 import redis.clients.jedis.resps.GeoRadiusResponse;
 import redis.clients.jedis.resps.Tuple;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.SafeEncoder;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Redis 会话
@@ -22,11 +32,41 @@ import java.util.concurrent.TimeUnit;
 public class RedisSessionImpl implements RedisSession {
 
     private static final String LOCK_SUCCEED = "OK";
+    private static final int SCAN_PAGE_SIZE = 1000; //扫描每页数量（COUNT 提示；与返回数量的上限无关）
+
+    //批量冒出（redis 6.2 之前，RPOP 不支持 count）
+    private static final LuaScript LIST_POP_SCRIPT = new LuaScript(
+            "local rst = {} " +
+                    "for i = 1, tonumber(ARGV[1]) do " +
+                    "local item = redis.call('rpop', KEYS[1]) " +
+                    "if not item then break end " +
+                    "rst[i] = item end " +
+                    "return rst");
 
     private final UnifiedJedis jedis;
+    private final boolean expirePipelined;
+    private final AtomicBoolean listPopCountUnsupported; //服务端不支持 RPOP count（同一客户端的会话共享）
 
     protected RedisSessionImpl(UnifiedJedis jedis) {
+        this(jedis, false);
+    }
+
+    /**
+     * @param expirePipelined 写入与过期是否合并为一次往返（管道模式）
+     * @since 1.9
+     */
+    protected RedisSessionImpl(UnifiedJedis jedis, boolean expirePipelined) {
+        this(jedis, expirePipelined, new AtomicBoolean());
+    }
+
+    /**
+     * @param listPopCountUnsupported 服务端不支持 RPOP count 的标记（同一客户端的会话共享）
+     * @since 1.9
+     */
+    protected RedisSessionImpl(UnifiedJedis jedis, boolean expirePipelined, AtomicBoolean listPopCountUnsupported) {
         this.jedis = jedis;
+        this.expirePipelined = expirePipelined;
+        this.listPopCountUnsupported = listPopCountUnsupported;
     }
 
     /**
@@ -61,6 +101,40 @@ public class RedisSessionImpl implements RedisSession {
         return jedis.del(keys.toArray(keyAry));
     }
 
+    /**
+     * 非阻塞删除一批主键（UNLINK；集群时按槽分组，管道发送）
+     */
+    @Override
+    public Long unlinkKeys(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return 0L;
+        }
+
+        if (jedis instanceof JedisCluster) {
+            Map<Integer, List<String>> slotKeys = new HashMap<>();
+            for (String key : keys) {
+                slotKeys.computeIfAbsent(JedisClusterCRC16.getSlot(key), k -> new ArrayList<>()).add(key);
+            }
+
+            List<Response<Long>> responses = new ArrayList<>(slotKeys.size());
+            try (AbstractPipeline pipeline = jedis.pipelined()) {
+                for (List<String> list : slotKeys.values()) {
+                    responses.add(pipeline.unlink(list.toArray(new String[list.size()])));
+                }
+                pipeline.sync();
+            }
+
+            long count = 0;
+            for (Response<Long> rst : responses) {
+                count += rst.get();
+            }
+            return count;
+        } else {
+            String[] keyAry = new String[keys.size()];
+            return jedis.unlink(keys.toArray(keyAry));
+        }
+    }
+
     /**
      * 检查一批主键是否存在
      */
@@ -132,6 +206,39 @@ public class RedisSessionImpl implements RedisSession {
         //-2:过期或已删
     }
 
+    private void expirePush(AbstractPipeline pipeline) {
+        if (_milliseconds > 0) {
+            pipeline.pexpire(_key, _milliseconds);
+        }
+
+        if (_milliseconds == -1) {
+            pipeline.persist(_key);
+        }
+    }
+
+    /**
+     * 写入并推送过期（管道模式时，写入与过期在同一批次里发送，只需一次往返）
+     *
+     * @param cmd       直接执行的指令
+     * @param pipedCmd  管道执行的指令
+     */
+    private <T> T writeAndExpire(Supplier<T> cmd, Function<AbstractPipeline, Response<T>> pipedCmd) {
+        if (expirePipelined && (_milliseconds > 0 || _milliseconds == -1)) {
+            try (AbstractPipeline pipeline = jedis.pipelined()) {
+                Response<T> rst = pipedCmd.apply(pipeline);
+                expirePush(pipeline);
+                pipeline.sync();
+
+                return rst == null ? null : rst.get();
+            }
+        } else {
+            T rst = cmd.get();
+            expirePush();
+
+            return rst;
+        }
+    }
+
 
     /**
      * 尝试延期
@@ -163,13 +270,18 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public List<String> scan(String keyPattern, int count) {
-        String cursor = ScanParams.SCAN_POINTER_START;
-
-        ScanParams p = new ScanParams();
-        p.count(count);
-        p.match(keyPattern);
+        return scanStream(keyPattern, SCAN_PAGE_SIZE).limit(count).collect(Collectors.toList());
+    }
 
-        return jedis.scan(cursor, p).getResult();
+    /**
+     * 主键扫描流（跟随游标直到结束；集群时扫描所有主节点）
+     *
+     * @param keyPattern 模式（?表示1+, *表示0+）
+     * @param pageSize   每页数量（COUNT 提示）
+     */
+    @Override
+    public Stream<String> scanStream(String keyPattern, int pageSize) {
+        return ScanIterator.of(jedis.scanIteration(pageSize, keyPattern)).stream();
     }
 
     /**
@@ -179,8 +291,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public boolean match(String keyPattern) {
-        List<String> temp = scan(keyPattern, 1);
-        return (temp != null && temp.size() > 0);
+        return scanStream(keyPattern, SCAN_PAGE_SIZE).findAny().isPresent();
     }
 
 
@@ -290,6 +401,30 @@ public class RedisSessionImpl implements RedisSession {
         return jedis.get(_key);
     }
 
+    /**
+     * 设置主键对应的值（二进制）
+     */
+    @Override
+    public RedisSessionImpl setBytes(byte[] val) {
+        AssertUtil.notNull(val, "redis value cannot be null");
+
+        if (_milliseconds > 0) {
+            jedis.psetex(SafeEncoder.encode(_key), _milliseconds, val);
+        } else {
+            jedis.set(SafeEncoder.encode(_key), val);
+        }
+
+        return this;
+    }
+
+    /**
+     * 获取主键对应的值（二进制）
+     */
+    @Override
+    public byte[] getBytes() {
+        return jedis.get(SafeEncoder.encode(_key));
+    }
+
     /**
      * 获取主键对应的值，并转为长整型
      */
@@ -318,10 +453,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public long incr(long num) {
-        long val = jedis.incrBy(_key, num);
-        expirePush();
-
-        return val;
+        return writeAndExpire(() -> jedis.incrBy(_key, num), p -> p.incrBy(_key, num));
     }
 
     /**
@@ -329,10 +461,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public long incr() {
-        long val = jedis.incr(_key);
-        expirePush();
-
-        return val;
+        return writeAndExpire(() -> jedis.incr(_key), p -> p.incr(_key));
     }
 
     /**
@@ -340,10 +469,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public long decr() {
-        long val = jedis.decr(_key);
-        expirePush();
-
-        return val;
+        return writeAndExpire(() -> jedis.decr(_key), p -> p.decr(_key));
     }
 
     /**
@@ -388,13 +514,21 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public List<Map.Entry<String, String>> hashScan(String fieldPattern, int count) {
-        String cursor = ScanParams.SCAN_POINTER_START;
+        return hashScanStream(fieldPattern, SCAN_PAGE_SIZE).limit(count).collect(Collectors.toList());
+    }
 
-        ScanParams p = new ScanParams();
-        p.count(count);
-        p.match(fieldPattern);
+    /**
+     * 哈希字段扫描流（跟随游标直到结束）
+     *
+     * @param fieldPattern 字段模式（?表示1+, *表示0+）
+     * @param pageSize     每页数量（COUNT 提示）
+     */
+    @Override
+    public Stream<Map.Entry<String, String>> hashScanStream(String fieldPattern, int pageSize) {
+        String key = _key;
+        ScanParams p = scanParams(fieldPattern, pageSize);
 
-        return jedis.hscan(_key, cursor, p).getResult();
+        return ScanIterator.of(cursor -> jedis.hscan(key, cursor, p)).stream();
     }
 
     /**
@@ -402,9 +536,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public boolean hashMatch(String fieldPattern) {
-        List<Map.Entry<String, String>> temp = hashScan(fieldPattern, 1);
-
-        return (temp != null && temp.size() > 0);
+        return hashScanStream(fieldPattern, SCAN_PAGE_SIZE).findAny().isPresent();
     }
 
     /**
@@ -420,8 +552,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public RedisSessionImpl hashSet(String field, String val) {
-        jedis.hset(_key, field, val);
-        expirePush();
+        writeAndExpire(() -> jedis.hset(_key, field, val), p -> p.hset(_key, field, val));
 
         return this;
     }
@@ -440,9 +571,7 @@ public class RedisSessionImpl implements RedisSession {
     @Override
     public RedisSessionImpl hashSetAll(Map<? extends String, ? extends String> map) {
         Map<String,String> map2 = new HashMap<>(map);
-        jedis.hset(_key, map2);
-
-        expirePush();
+        writeAndExpire(() -> jedis.hset(_key, map2), p -> p.hset(_key, map2));
 
         return this;
     }
@@ -452,10 +581,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public boolean hashInit(String field, String val) {
-        boolean tmp = jedis.hsetnx(_key, field, val) > 0;
-        expirePush();
-
-        return tmp;
+        return writeAndExpire(() -> jedis.hsetnx(_key, field, val), p -> p.hsetnx(_key, field, val)) > 0;
     }
 
     /**
@@ -472,10 +598,19 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public long hashIncr(String field, long num) {
-        long val = jedis.hincrBy(_key, field, num);
-        expirePush();
+        return writeAndExpire(() -> jedis.hincrBy(_key, field, num), p -> p.hincrBy(_key, field, num));
+    }
 
-        return val;
+    /**
+     * 哈希字段设置（二进制）
+     */
+    @Override
+    public RedisSessionImpl hashSetBytes(String field, byte[] val) {
+        byte[] keyBytes = SafeEncoder.encode(_key);
+        byte[] fieldBytes = SafeEncoder.encode(field);
+        writeAndExpire(() -> jedis.hset(keyBytes, fieldBytes, val), p -> p.hset(keyBytes, fieldBytes, val));
+
+        return this;
     }
 
     /**
@@ -486,6 +621,14 @@ public class RedisSessionImpl implements RedisSession {
         return jedis.hget(_key, field);
     }
 
+    /**
+     * 哈希字段获取（二进制）
+     */
+    @Override
+    public byte[] hashGetBytes(String field) {
+        return jedis.hget(SafeEncoder.encode(_key), SafeEncoder.encode(field));
+    }
+
     /**
      * 哈希字段获取并转为长整型
      */
@@ -549,8 +692,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public RedisSessionImpl listAdd(String item) {
-        jedis.lpush(_key, item); //左侧压进
-        expirePush();
+        writeAndExpire(() -> jedis.lpush(_key, item), p -> p.lpush(_key, item)); //左侧压进
 
         return this;
     }
@@ -568,16 +710,12 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public RedisSessionImpl listSet(int index, String newValue) {
-        jedis.lset(_key, index, newValue);
-        expirePush();
-
-        return this;
+        return listSet((long) index, newValue);
     }
 
     @Override
-    public RedisSession listSet(long index, String newValue) {
-        jedis.lset(_key, index, newValue);
-        expirePush();
+    public RedisSessionImpl listSet(long index, String newValue) {
+        writeAndExpire(() -> jedis.lset(_key, index, newValue), p -> p.lset(_key, index, newValue));
 
         return this;
     }
@@ -591,8 +729,7 @@ public class RedisSessionImpl implements RedisSession {
      */
     @Override
     public RedisSessionImpl listDel(String item, int count) {
-        jedis.lrem(_key, count, item); //左侧压进
-        expirePush();
+        writeAndExpire(() -> jedis.lrem(_key, count, item), p -> p.lrem(_key, count, item));
 
         return this;
     }
@@ -607,11 +744,17 @@ public class RedisSessionImpl implements RedisSession {
 
     @Override
     public RedisSessionImpl listDelRange(Collection<? extends String> items) {
-        for (String item : items) {
-            jedis.lrem(_key, 0, item); //左侧压进
-        }
-
-        expirePush();
+        writeAndExpire(() -> {
+            for (String item : items) {
+                jedis.lrem(_key, 0, item); //左侧压进
+            }
+            return null;
+        }, p -> {
+            for (String item : items) {
+                p.lrem(_key, 0, item);
+            }
+            return null;
+        });
 
         return this;
     }
@@ -622,9 +765,8 @@ public class RedisSessionImpl implements RedisSession {
 
     @Override
     public RedisSessionImpl listAddRange(Collection<? extends String> items) {
-        jedis.lpush(_key, items.toArray(new String[items.size()]));
-
-        expirePush();
+        String[] itemAry = items.toArray(new String[items.size()]);
+        writeAndExpire(() -> jedis.lpush(_key, itemAry), p -> p.lpush(_key, itemAry));
 
         return this;
     }
@@ -637,6 +779,29 @@ public class RedisSessionImpl implements RedisSession {
         return jedis.rpop(_key); //右侧推出
     }
 
+    /**
+     * 列表批量冒出
+     */
+    @Override
+    public List<String> listPop(int count) {
+        if (listPopCountUnsupported.get() == false) {
+            try {
+                List<String> items = jedis.rpop(_key, count); //右侧推出
+                return items == null ? new ArrayList<>() : items;
+            } catch (JedisDataException e) {
+                if (e.getMessage() == null || e.getMessage().contains("wrong number of arguments") == false) {
+                    throw e;
+                }
+
+                listPopCountUnsupported.set(true);
+            }
+        }
+
+        return (List<String>) LIST_POP_SCRIPT.eval(jedis,
+                Collections.singletonList(_key),
+                Collections.singletonList(String.valueOf(count)));
+    }
+
     /**
      * 列表预览
      */
@@ -694,10 +859,7 @@ public class RedisSessionImpl implements RedisSession {
     //Sset::
     @Override
     public long setAdd(String item) {
-        long tmp = jedis.sadd(_key, item); //左侧压进
-        expirePush();
-
-        return tmp;
+        return writeAndExpire(() -> jedis.sadd(_key, item), p -> p.sadd(_key, item));
     }
 
     @Override
@@ -708,9 +870,8 @@ public class RedisSessionImpl implements RedisSession {
 
     @Override
     public RedisSessionImpl setAddRange(Collection<String> items) {
-        jedis.sadd(_key, items.toArray(new String[items.size()])); //左侧压进
-
-        expirePush();
+        String[] itemAry = items.toArray(new String[items.size()]);
+        writeAndExpire(() -> jedis.sadd(_key, itemAry), p -> p.sadd(_key, itemAry));
 
         return this;
     }
@@ -732,27 +893,27 @@ public class RedisSessionImpl implements RedisSession {
 
     @Override
     public List<String> setScan(String itemPattern, int count) {
-        String cursor = ScanParams.SCAN_POINTER_START;
+        return setScanStream(itemPattern, SCAN_PAGE_SIZE).limit(count).collect(Collectors.toList());
+    }
 
-        ScanParams p = new ScanParams();
-        p.count(count);
-        p.match(itemPattern);
+    @Override
+    public Stream<String> setScanStream(String itemPattern, int pageSize) {
+        String key = _key;
+        ScanParams p = scanParams(itemPattern, pageSize);
 
-        return jedis.sscan(_key, cursor, p).getResult();
+        return ScanIterator.of(cursor -> jedis.sscan(key, cursor, p)).stream();
     }
 
     @Override
     public boolean setMatch(String itemPattern) {
-        List<String> temp = setScan(itemPattern, 1);
-        return (temp != null && temp.size() > 0);
+        return setScanStream(itemPattern, SCAN_PAGE_SIZE).findAny().isPresent();
     }
 
     //------------------
     //Sort set::
     @Override
     public RedisSessionImpl zsetAdd(double score, String item) {
-        jedis.zadd(_key, score, item);
-        expirePush();
+        writeAndExpire(() -> jedis.zadd(_key, score, item), p -> p.zadd(_key, score, item));
 
         return this;
     }
@@ -786,35 +947,39 @@ public class RedisSessionImpl implements RedisSession {
 
     @Override
     public List<Tuple> zsetScan(String itemPattern, int count) {
-        String cursor = ScanParams.SCAN_POINTER_START;
+        return zsetScanStream(itemPattern, SCAN_PAGE_SIZE).limit(count).collect(Collectors.toList());
+    }
 
-        ScanParams p = new ScanParams();
-        p.count(count);
-        p.match(itemPattern);
+    @Override
+    public Stream<Tuple> zsetScanStream(String itemPattern, int pageSize) {
+        String key = _key;
+        ScanParams p = scanParams(itemPattern, pageSize);
 
-        return jedis.zscan(_key, cursor, p).getResult();
+        return ScanIterator.of(cursor -> jedis.zscan(key, cursor, p)).stream();
     }
 
     @Override
     public boolean zsetMatch(String itemPattern) {
-        List<Tuple> temp = zsetScan(itemPattern, 1);
-        return (temp != null && temp.size() > 0);
+        return zsetScanStream(itemPattern, SCAN_PAGE_SIZE).findAny().isPresent();
+    }
+
+    private static ScanParams scanParams(String pattern, int pageSize) {
+        ScanParams p = new ScanParams();
+        p.count(pageSize);
+        p.match(pattern);
+        return p;
     }
 
     //------------------
     //geo::
     @Override
     public long geoAdd(double lng, double lat, String member) {
-        long tmp = jedis.geoadd(_key, lng, lat, member);
-        expirePush();
-        return tmp;
+        return writeAndExpire(() -> jedis.geoadd(_key, lng, lat, member), p -> p.geoadd(_key, lng, lat, member));
     }
 
     @Override
     public long geoAddAll(Map<String, GeoCoordinate> memberMap) {
-        long tmp = jedis.geoadd(_key, memberMap);
-        expirePush();
-        return tmp;
+        return writeAndExpire(() -> jedis.geoadd(_key, memberMap), p -> p.geoadd(_key, memberMap));
     }
 
     @Override
@@ -834,6 +999,15 @@ public class RedisSessionImpl implements RedisSession {
         return jedis.publish(channel, message);
     }
 
+    @Override
+    public long spublish(String channel, String message) {
+        CommandArguments args = new CommandArguments(Protocol.Command.SPUBLISH)
+                .key(channel)
+                .add(message);
+
+        return jedis.executeCommand(new CommandObject<>(args, BuilderFactory.LONG));
+    }
+
     @Override
     public void subscribe(JedisPubSub jedisPubSub, String... channels) {
         jedis.subscribe(jedisPubSub, channels);
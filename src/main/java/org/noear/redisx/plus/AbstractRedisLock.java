@@ -0,0 +1,186 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.LuaScript;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 分布式锁基类（脚本加锁；等待释放通知，不轮询；支持看门狗续期）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public abstract class AbstractRedisLock {
+    /**
+     * 看门狗模式的租期（毫秒）
+     */
+    protected static final long WATCHDOG_LEASE_MILLIS = 30_000;
+    /**
+     * 没有过期时间的锁，最长等待一次的时间（毫秒）
+     */
+    protected static final long WAIT_MAX_MILLIS = 1_000;
+    /**
+     * 释放通知未就绪时，最长等待一次的时间（毫秒）
+     */
+    protected static final long WAIT_UNREADY_MILLIS = 100;
+
+    //强制解锁：删除并发布释放通知
+    private static final LuaScript FORCE_UNLOCK_SCRIPT = new LuaScript(
+            "local n = redis.call('del', KEYS[1]) " +
+                    "redis.call('publish', ARGV[1], KEYS[1]) " +
+                    "return n");
+
+    protected final RedisClient client;
+    protected final String lockName;
+
+    protected AbstractRedisLock(RedisClient client, String lockName) {
+        this.client = client;
+        this.lockName = lockName;
+    }
+
+    /**
+     * 尝试加锁（一次往返）
+     *
+     * @return 成功为 null，失败为剩余毫秒
+     */
+    protected abstract Long tryAcquire(String holder, long leaseMillis);
+
+    /**
+     * 续期
+     *
+     * @return 是否仍持有
+     */
+    protected abstract boolean renew(String holder, long leaseMillis);
+
+    /**
+     * 释放
+     *
+     * @return 剩余持有次数（0 表示已完全释放，-1 表示未持有）
+     */
+    protected abstract long release(String holder);
+
+    /**
+     * 看门狗名字（同一个主键上有多种锁时，用于区分）
+     */
+    protected String watchName() {
+        return lockName;
+    }
+
+    /**
+     * 尝试锁
+     *
+     * @param leaseTime 锁定时间
+     * @param timeUnit  时间单位
+     * @param holder    持有人
+     */
+    public boolean tryLock(long leaseTime, TimeUnit timeUnit, String holder) {
+        return tryAcquire(holder, timeUnit.toMillis(leaseTime)) == null;
+    }
+
+    /**
+     * 锁（等待释放通知，不轮询）
+     *
+     * @param waitTime  最长等待时间
+     * @param leaseTime 锁定时间（小于等于 0 时，由看门狗自动续期，直到解锁）
+     * @param timeUnit  时间单位
+     * @param holder    持有人（要唯一，解锁时校验）
+     * @return 是否成功
+     */
+    public boolean lock(long waitTime, long leaseTime, TimeUnit timeUnit, String holder) throws InterruptedException {
+        boolean watchdog = leaseTime <= 0;
+        long leaseMillis = watchdog ? WATCHDOG_LEASE_MILLIS : timeUnit.toMillis(leaseTime);
+        long deadline = System.currentTimeMillis() + timeUnit.toMillis(waitTime);
+
+        RedisLockNotifier notifier = client.getLockNotifier();
+        RedisLockNotifier.Signal signal = notifier.register(lockName);
+
+        try {
+            while (true) {
+                long gen = signal.generation();
+                Long ttl = tryAcquire(holder, leaseMillis);
+
+                if (ttl == null) {
+                    if (watchdog) {
+                        notifier.watch(watchName(), holder, leaseMillis, () -> renew(holder, leaseMillis));
+                    }
+                    return true;
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                if (ttl == -2) {
+                    continue; //两次调用之间锁已消失，立即重试
+                }
+
+                //等释放通知；最多等到锁过期（过期不会有通知）
+                long waitMillis = ttl > 0 ? Math.min(remaining, ttl) : Math.min(remaining, WAIT_MAX_MILLIS);
+
+                if (notifier.isReady() == false) {
+                    //订阅还没确认（首次等待或重连中），可能收不到通知
+                    waitMillis = Math.min(waitMillis, WAIT_UNREADY_MILLIS);
+                }
+
+                signal.await(gen, waitMillis);
+            }
+        } finally {
+            notifier.unregister(lockName);
+        }
+    }
+
+    /**
+     * 锁（由看门狗自动续期，直到解锁）
+     *
+     * @param waitTime 最长等待时间
+     * @param timeUnit 时间单位
+     * @param holder   持有人（要唯一，解锁时校验）
+     * @return 是否成功
+     */
+    public boolean lock(long waitTime, TimeUnit timeUnit, String holder) throws InterruptedException {
+        return lock(waitTime, -1, timeUnit, holder);
+    }
+
+    /**
+     * 解锁（持有人相同才解锁；完全释放时通知等待者。持有人为 null 时强制解锁，与 RedisLock 一致）
+     */
+    public void unLock(String holder) {
+        if (holder == null) {
+            eval(FORCE_UNLOCK_SCRIPT, RedisLockNotifier.CHANNEL);
+            return;
+        }
+
+        if (release(holder) <= 0) {
+            client.getLockNotifier().unwatch(watchName(), holder);
+        }
+    }
+
+    /**
+     * 检查是否已被锁定
+     */
+    public boolean isLocked() {
+        return client.openAndGet((s) -> s.key(lockName).exists());
+    }
+
+    /**
+     * 获取剩余时间
+     */
+    public long ttl() {
+        return client.openAndGet((s) -> s.key(lockName).ttl());
+    }
+
+    /**
+     * 执行脚本（以锁名为 key）
+     */
+    protected Object eval(LuaScript script, String... args) {
+        List<String> keys = Collections.singletonList(lockName);
+        List<String> argList = Arrays.asList(args);
+
+        return client.openAndGet(s -> script.eval(s.jedis(), keys, argList));
+    }
+}
@@ -1,6 +1,9 @@
 package org.noear.redisx.plus;
 
 import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.TextUtil;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Redis 原子数字
@@ -57,4 +60,32 @@ public class RedisAtomic {
     public long decrementBy(long num) {
         return client.openAndGet(s -> s.key(atomicName).expire(inSeconds).incr(-num));
     }
+
+    /**
+     * 异步获取值
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<Long> getAsync() {
+        return client.async().submit(s -> s.key(atomicName).get())
+                .thenApply(val -> TextUtil.isEmpty(val) ? 0L : Long.parseLong(val));
+    }
+
+    /**
+     * 异步原子增量（不设置时间，即为永久）
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<Long> incrementAsync() {
+        return client.async().submit(s -> s.key(atomicName).expire(inSeconds).incr());
+    }
+
+    /**
+     * 异步原子增量（不设置时间，即为永久）
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<Long> incrementByAsync(long num) {
+        return client.async().submit(s -> s.key(atomicName).expire(inSeconds).incr(num));
+    }
 }
@@ -1,13 +1,17 @@
 package org.noear.redisx.plus;
 
 import org.noear.redisx.RedisClient;
+import org.noear.redisx.RedisPipelineSession;
 import org.noear.redisx.utils.AssertUtil;
+import redis.clients.jedis.Response;
 
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 
 /**
@@ -17,10 +21,43 @@ import java.util.function.Supplier;
  * @since 1.3
  */
 public class RedisBucket {
+    private static final int PATTERN_BATCH_SIZE = 1000;
+    private static final String LOAD_LOCK_SUFFIX = ":loading";
+    private static final String LOAD_DELTA_SUFFIX = ":delta"; //最近一次的加载耗时（与值同时效，所有节点共用）
+    private static final int LOAD_LOCK_SECONDS = 10;
+    private static final long LOAD_WAIT_MILLIS = 50;
+
     private final RedisClient client;
+    private final RedisNearCache nearCache;
 
     public RedisBucket(RedisClient client) {
+        this(client, null);
+    }
+
+    /**
+     * @param nearCache 近端缓存（可为 null）
+     * @since 1.9
+     */
+    public RedisBucket(RedisClient client, RedisNearCache nearCache) {
         this.client = client;
+        this.nearCache = nearCache;
+    }
+
+    /**
+     * 近端缓存失效
+     */
+    private void invalidate(String key) {
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    private void invalidate(Collection<String> keys) {
+        if (nearCache != null) {
+            for (String key : keys) {
+                nearCache.invalidate(key);
+            }
+        }
     }
 
 
@@ -29,6 +66,7 @@ public class RedisBucket {
      */
     public void store(String key, String val, int inSeconds) {
         client.open(s -> s.key(key).expire(inSeconds).set(val));
+        invalidate(key);
     }
 
     /**
@@ -36,6 +74,7 @@ public class RedisBucket {
      */
     public void store(String key, String val) {
         client.open(s -> s.key(key).set(val));
+        invalidate(key);
     }
 
     /**
@@ -46,7 +85,7 @@ public class RedisBucket {
 
         String val = client.serializer().encode(obj);
 
-        client.open(s -> s.key(key).expire(inSeconds).set(val));
+        store(key, val, inSeconds);
     }
 
     /**
@@ -57,16 +96,147 @@ public class RedisBucket {
 
         String val = client.serializer().encode(obj);
 
-        client.open(s -> s.key(key).set(val));
+        store(key, val);
+    }
+
+    /**
+     * 存储二进制
+     *
+     * @since 1.9
+     */
+    public void storeBytes(String key, byte[] val, int inSeconds) {
+        client.open(s -> s.key(key).expire(inSeconds).setBytes(val));
+        invalidate(key);
+    }
+
+    /**
+     * 存储二进制（不设置时间，即为永久）
+     *
+     * @since 1.9
+     */
+    public void storeBytes(String key, byte[] val) {
+        client.open(s -> s.key(key).setBytes(val));
+        invalidate(key);
+    }
+
+    /**
+     * 存储并二进制序列化（与 storeAndSerialize 的格式不通用）
+     *
+     * @since 1.9
+     */
+    public void storeAndSerializeBinary(String key, Object obj, int inSeconds) {
+        AssertUtil.notNull(obj, "redis value cannot be null");
+
+        storeBytes(key, client.binarySerializer().encodeBytes(obj), inSeconds);
+    }
+
+    /**
+     * 存储并二进制序列化（不设置时间，即为永久）
+     *
+     * @since 1.9
+     */
+    public void storeAndSerializeBinary(String key, Object obj) {
+        AssertUtil.notNull(obj, "redis value cannot be null");
+
+        storeBytes(key, client.binarySerializer().encodeBytes(obj));
+    }
+
+    /**
+     * 获取二进制
+     *
+     * @since 1.9
+     */
+    public byte[] getBytes(String key) {
+        return client.openAndGet(s -> s.key(key).getBytes());
+    }
+
+    /**
+     * 获取并二进制反序列化
+     *
+     * @since 1.9
+     */
+    public <T> T getAndDeserializeBinary(String key, Type type) {
+        byte[] val = getBytes(key);
+
+        if (val == null) {
+            return null;
+        } else {
+            return (T) client.binarySerializer().decodeBytes(val, type);
+        }
+    }
+
+    /**
+     * 异步存储
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<Void> storeAsync(String key, String val, int inSeconds) {
+        return client.async().execute(s -> s.key(key).expire(inSeconds).set(val))
+                .thenRun(() -> invalidate(key));
+    }
+
+    /**
+     * 异步存储（不设置时间，即为永久）
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<Void> storeAsync(String key, String val) {
+        return client.async().execute(s -> s.key(key).set(val))
+                .thenRun(() -> invalidate(key));
+    }
+
+    /**
+     * 异步存储并序列化
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<Void> storeAndSerializeAsync(String key, Object obj, int inSeconds) {
+        AssertUtil.notNull(obj, "redis value cannot be null");
+
+        String val = client.serializer().encode(obj);
+
+        return storeAsync(key, val, inSeconds);
     }
 
     /**
      * 获取
      */
     public String get(String key) {
+        if (nearCache != null) {
+            return nearCache.get(key, this::getDo);
+        }
+
+        return getDo(key);
+    }
+
+    private String getDo(String key) {
         return client.openAndGet(s -> s.key(key).get());
     }
 
+    /**
+     * 异步获取
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<String> getAsync(String key) {
+        return client.async().submit(s -> s.key(key).get());
+    }
+
+    /**
+     * 异步获取并反序列化
+     *
+     * @since 1.9
+     */
+    public <T> CompletableFuture<T> getAndDeserializeAsync(String key, Type type) {
+        return getAsync(key).thenApply(val -> {
+            if (val == null) {
+                return null;
+            } else {
+                return (T) client.serializer().decode(val, type);
+            }
+        });
+    }
+
     /**
      * 获取更多
      *
@@ -100,6 +270,10 @@ public class RedisBucket {
      * @since 1.5
      */
     public <T> T getAndDeserialize(String key, Type type) {
+        if (nearCache != null) {
+            return nearCache.getAndDecode(key, type, this::getDo, client.serializer()::decode);
+        }
+
         String val = get(key);
 
         if (val == null) {
@@ -192,6 +366,146 @@ public class RedisBucket {
         return val;
     }
 
+    /**
+     * 获取或存储（单飞加载：同一主键集群内只有一个加载者，其它等待；过期前按概率提前刷新）
+     *
+     * @since 1.9
+     */
+    public String getOrStoreSingleFlight(String key, int inSeconds, Supplier<String> supplier) {
+        return getOrStoreSingleFlight(key, inSeconds, 1.0D, supplier);
+    }
+
+    /**
+     * 获取或存储（单飞加载：同一主键集群内只有一个加载者，其它等待；过期前按概率提前刷新）
+     *
+     * @param beta 提前刷新系数（0 表示不提前刷新；越大越提前）
+     * @since 1.9
+     */
+    public String getOrStoreSingleFlight(String key, int inSeconds, double beta, Supplier<String> supplier) {
+        return getOrStoreSingleFlightDo(key, inSeconds, beta, String.class, val -> val, val -> val, supplier);
+    }
+
+    /**
+     * 获取或存储并序列化（单飞加载：同一主键集群内只有一个加载者，其它等待；过期前按概率提前刷新）
+     *
+     * @since 1.9
+     */
+    public <T> T getOrStoreAndSerializeSingleFlight(String key, int inSeconds, Type type, Supplier<T> supplier) {
+        return getOrStoreAndSerializeSingleFlight(key, inSeconds, 1.0D, type, supplier);
+    }
+
+    /**
+     * 获取或存储并序列化（单飞加载：同一主键集群内只有一个加载者，其它等待；过期前按概率提前刷新）
+     *
+     * @param beta 提前刷新系数（0 表示不提前刷新；越大越提前）
+     * @since 1.9
+     */
+    public <T> T getOrStoreAndSerializeSingleFlight(String key, int inSeconds, double beta, Type type, Supplier<T> supplier) {
+        return getOrStoreSingleFlightDo(key, inSeconds, beta, type,
+                val -> (T) client.serializer().decode(val, type),
+                obj -> client.serializer().encode(obj),
+                supplier);
+    }
+
+    private <T> T getOrStoreSingleFlightDo(String key, int inSeconds, double beta, Type type,
+                                           Function<String, T> decoder, Function<T, String> encoder, Supplier<T> supplier) {
+        //值、剩余时间与加载耗时一次往返取回
+        Response<String> valRef;
+        Response<Long> pttlRef;
+        Response<String> deltaRef;
+        try (RedisPipelineSession s = client.openPipeline()) {
+            valRef = s.key(key).get();
+            pttlRef = s.pipeline().pttl(key);
+            deltaRef = s.key(key + LOAD_DELTA_SUFFIX).get();
+        }
+
+        String val = valRef.get();
+        String flightKey = type.getTypeName() + "#" + key;
+
+        if (val != null) {
+            //XFetch：剩余时间越少、加载越慢，越可能提前刷新；只有拿到锁的那个去刷新，其它直接用旧值
+            String deltaStr = deltaRef.get();
+            Long delta = deltaStr == null ? null : Long.parseLong(deltaStr);
+            long pttl = pttlRef.get();
+
+            if (beta > 0 && delta != null && pttl > 0
+                    && -delta * beta * Math.log(ThreadLocalRandom.current().nextDouble()) >= pttl
+                    && client.singleFlight().isRunning(flightKey) == false) {
+                String holder = UUID.randomUUID().toString();
+                RedisLock lock = client.getLock(key + LOAD_LOCK_SUFFIX);
+
+                if (lock.tryLock(LOAD_LOCK_SECONDS, holder)) {
+                    try {
+                        return client.singleFlight().execute(flightKey, () -> loadAndStore(key, inSeconds, encoder, supplier));
+                    } catch (RuntimeException e) {
+                        //提前刷新失败，旧值仍有效，照常返回
+                    } finally {
+                        lock.unLock(holder);
+                    }
+                }
+            }
+
+            return decoder.apply(val);
+        }
+
+        return client.singleFlight().execute(flightKey, () -> {
+            String holder = UUID.randomUUID().toString();
+            RedisLock lock = client.getLock(key + LOAD_LOCK_SUFFIX);
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(LOAD_LOCK_SECONDS);
+
+            while (System.currentTimeMillis() < deadline) {
+                if (lock.tryLock(LOAD_LOCK_SECONDS, holder)) {
+                    try {
+                        //双重检查（可能刚被别的节点加载了）
+                        String val2 = getDo(key);
+                        if (val2 != null) {
+                            return decoder.apply(val2);
+                        }
+
+                        return loadAndStore(key, inSeconds, encoder, supplier);
+                    } finally {
+                        lock.unLock(holder);
+                    }
+                }
+
+                //别的节点在加载，等它的结果
+                try {
+                    Thread.sleep(LOAD_WAIT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                String val2 = getDo(key);
+                if (val2 != null) {
+                    return decoder.apply(val2);
+                }
+            }
+
+            //等待超时（加载者可能已宕），自己加载
+            return loadAndStore(key, inSeconds, encoder, supplier);
+        });
+    }
+
+    private <T> T loadAndStore(String key, int inSeconds, Function<T, String> encoder, Supplier<T> supplier) {
+        long start = System.currentTimeMillis();
+        T obj = supplier.get();
+
+        long delta = System.currentTimeMillis() - start;
+
+        if (obj != null) {
+            //值与加载耗时一起写入（一次往返）
+            String val = encoder.apply(obj);
+            try (RedisPipelineSession s = client.openPipeline()) {
+                s.key(key).expire(inSeconds).set(val);
+                s.key(key + LOAD_DELTA_SUFFIX).expire(inSeconds).set(delta);
+            }
+            invalidate(key);
+        }
+
+        return obj;
+    }
+
     /**
      * 检查是否存在
      */
@@ -209,20 +523,21 @@ public class RedisBucket {
     }
 
     /**
-     * 检查一批匹配模式的主键是否存在
+     * 检查一批匹配模式的主键是否存在（基于 SCAN，不阻塞服务端；返回匹配数量，SCAN 可能重复返回的已去重）
      */
     public Long existsByPattern(String pattern) {
-        return client.openAndGet(s -> {
-            Set<String> keys = s.keys(pattern);
-            return s.existsKeys(keys);
-        });
+        return client.openAndGet(s -> s.scanStream(pattern, PATTERN_BATCH_SIZE).distinct().count());
     }
 
     /**
      * 移除
      */
     public Boolean remove(String key) {
-        return client.openAndGet(s -> s.key(key).delete());
+        try {
+            return client.openAndGet(s -> s.key(key).delete());
+        } finally {
+            invalidate(key);
+        }
     }
 
     /**
@@ -231,17 +546,58 @@ public class RedisBucket {
      * @since 1.6
      */
     public Long remove(Collection<String> keys) {
-        return client.openAndGet(s -> s.deleteKeys(keys));
+        try {
+            return client.openAndGet(s -> s.deleteKeys(keys));
+        } finally {
+            invalidate(keys);
+        }
     }
 
     /**
      * 移除一批匹配模式的主键
      */
     public Long removeByPattern(String pattern) {
-        return client.openAndGet(s -> {
-            Set<String> keys = s.keys(pattern);
-            return s.deleteKeys(keys);
-        });
+        return removeByPattern(pattern, PATTERN_BATCH_SIZE, null);
+    }
+
+    /**
+     * 移除匹配模式的主键（基于 SCAN 分批 UNLINK，不阻塞服务端）
+     *
+     * @param batchSize 每批数量（即 SCAN 的 COUNT 与 UNLINK 的主键数）
+     * @param progress  进度（每批完成后回调，参数为累计移除数）
+     * @since 1.9
+     */
+    public Long removeByPattern(String pattern, int batchSize, LongConsumer progress) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+
+        try {
+            return client.openAndGet(s -> {
+                long total = 0;
+                List<String> batch = new ArrayList<>(batchSize);
+                Iterator<String> iterator = s.scanStream(pattern, batchSize).iterator();
+
+                while (iterator.hasNext()) {
+                    batch.add(iterator.next());
+
+                    if (batch.size() >= batchSize || iterator.hasNext() == false) {
+                        total += s.unlinkKeys(batch);
+                        batch.clear();
+
+                        if (progress != null) {
+                            progress.accept(total);
+                        }
+                    }
+                }
+
+                return total;
+            });
+        } finally {
+            if (nearCache != null) {
+                nearCache.invalidateAll();
+            }
+        }
     }
 
     /**
@@ -0,0 +1,70 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+
+/**
+ * Redis 缓冲原子数字（增量先在本地累加，由计数缓冲批量刷写；适合浏览数、频次等高频计数）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisBufferedAtomic {
+    private final RedisClient client;
+    private final RedisCounterBuffer buffer;
+    private final String atomicName;
+    private final int inSeconds;//永久:-1
+
+    public RedisBufferedAtomic(RedisClient client, RedisCounterBuffer buffer, String atomicName) {
+        this(client, buffer, atomicName, -1);
+    }
+
+    public RedisBufferedAtomic(RedisClient client, RedisCounterBuffer buffer, String atomicName, int inSeconds) {
+        this.client = client;
+        this.buffer = buffer;
+        this.atomicName = atomicName;
+        this.inSeconds = inSeconds;
+    }
+
+    /**
+     * 获取值（远端值 + 本地未刷写的增量）
+     */
+    public long get() {
+        long remote = client.openAndGet(s -> s.key(atomicName).getAsLong());
+        return remote + buffer.pending(atomicName);
+    }
+
+    /**
+     * 增量（本地累加）
+     */
+    public void increment() {
+        buffer.add(atomicName, inSeconds, 1);
+    }
+
+    /**
+     * 增量（本地累加）
+     */
+    public void incrementBy(long num) {
+        buffer.add(atomicName, inSeconds, num);
+    }
+
+    /**
+     * 减量（本地累加）
+     */
+    public void decrement() {
+        buffer.add(atomicName, inSeconds, -1);
+    }
+
+    /**
+     * 减量（本地累加）
+     */
+    public void decrementBy(long num) {
+        buffer.add(atomicName, inSeconds, -num);
+    }
+
+    /**
+     * 立即刷写（整个缓冲）
+     */
+    public void flush() {
+        buffer.flush();
+    }
+}
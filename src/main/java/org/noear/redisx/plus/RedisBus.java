@@ -121,10 +121,70 @@ public class RedisBus {
         return future;
     }
 
+    /**
+     * 共享订阅（客户端内所有频道共用一个订阅连接；断线后自动重连，同一频道按顺序处理）
+     *
+     * @return 订阅（关闭即取消）
+     * @since 1.9
+     */
+    public RedisSubscriber.Subscription subscribeShared(BiConsumer<String, String> subscriber, String... topics) {
+        return client.subscriber().subscribe(subscriber, topics);
+    }
+
+    /**
+     * 根据匹配模式共享订阅（客户端内共用一个订阅连接）
+     *
+     * @return 订阅（关闭即取消）
+     * @since 1.9
+     */
+    public RedisSubscriber.Subscription psubscribeShared(BiConsumer<String, String> subscriber, String... patterns) {
+        return client.subscriber().psubscribe(subscriber, patterns);
+    }
+
+    /**
+     * 分片订阅（SSUBSCRIBE；频道订阅到其所在的分片，槽迁移时自动改订。需要 redis 7.0+）
+     *
+     * @return 订阅（关闭即取消）
+     * @since 1.9
+     */
+    public RedisSubscriber.Subscription ssubscribe(BiConsumer<String, String> subscriber, String... topics) {
+        return client.shardedSubscriber().subscribe(subscriber, topics);
+    }
+
     /**
      * 发布
      */
     public void publish(String topic, String message) {
         client.open(s -> s.publish(topic, message));
     }
+
+    /**
+     * 异步发布（经批量发布器攒批，管道发送；适合突发的大量小消息）
+     *
+     * @return 收到消息的订阅者数量
+     * @since 1.9
+     */
+    public CompletableFuture<Long> publishAsync(String topic, String message) {
+        return client.publisher().publish(topic, message);
+    }
+
+    /**
+     * 分片发布（SPUBLISH；只在频道所在的分片内传播。需要 redis 7.0+）
+     *
+     * @return 收到消息的订阅者数量
+     * @since 1.9
+     */
+    public long spublish(String topic, String message) {
+        return client.openAndGet(s -> s.spublish(topic, message));
+    }
+
+    /**
+     * 异步分片发布（经分片批量发布器攒批，管道发送）
+     *
+     * @return 收到消息的订阅者数量
+     * @since 1.9
+     */
+    public CompletableFuture<Long> spublishAsync(String topic, String message) {
+        return client.shardedPublisher().publish(topic, message);
+    }
 }
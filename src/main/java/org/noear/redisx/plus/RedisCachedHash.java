@@ -0,0 +1,432 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.AssertUtil;
+
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Redis 缓存哈希（本地保留整个哈希的快照，读取不访问服务端；写入先进本地缓冲，攒批后一次 HSET 多字段写入）
+ * <p>
+ * 变更通过总线通知其它节点（收到后对应字段下次读取时重新获取）；快照超过刷新时间后整体重新加载，以兜底丢失的通知。
+ * 写入在 flush 后才对其它节点可见；二进制值（putBytes）不进快照，用 getBytes 读取；scan 系列直接扫描服务端。
+ * 关闭客户端时，会写入缓冲的字段
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisCachedHash extends RedisHash implements AutoCloseable {
+    //通知类型（字段名放在类型之后，不会与类型混淆）
+    private static final String NOTIFY_FIELD = ":F:";
+    private static final String NOTIFY_BYTES = ":B:";
+    private static final String NOTIFY_ALL = ":A";
+    private static final int SCAN_THRESHOLD = 1000;
+    private static final int SCAN_PAGE_SIZE = 1000;
+    private static final long RETRY_MILLIS = 1000;
+
+    private final String channel;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final int batchSize;
+    private final long flushMillis;
+    private final long refreshMillis;
+
+    private final Object lock = new Object();
+    private final Object writeLock = new Object(); //远程写入串行（避免删除与缓冲写入乱序）
+    private final Set<String> staleFields = ConcurrentHashMap.newKeySet(); //收到通知，待重新获取的字段
+    private final Set<String> bytesFields = ConcurrentHashMap.newKeySet(); //二进制值的字段（不进快照）
+    private volatile Map<String, String> snapshot; //未加载时为 null
+    private volatile long loadedAt;
+
+    private Map<String, String> pending = new LinkedHashMap<>(); //由 lock 同步
+    private Map<String, String> inFlight = Collections.emptyMap(); //由 lock 同步
+    private ScheduledFuture<?> flushTask; //由 lock 同步
+
+    private final RedisSubscriber.Subscription subscription;
+
+    /**
+     * @param batchSize      缓冲写入的最大字段数（攒够即写入）
+     * @param flushMillis    缓冲写入的最长等待毫秒数
+     * @param refreshSeconds 快照整体重新加载的秒数（小于等于 0 时，只依赖通知）
+     */
+    public RedisCachedHash(RedisClient client, String hashName, int inSeconds, int batchSize, long flushMillis, int refreshSeconds) {
+        super(client, hashName, inSeconds);
+
+        this.channel = "redisx:hash:" + hashName;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushMillis = Math.max(0, flushMillis);
+        this.refreshMillis = refreshSeconds * 1000L;
+
+        this.subscription = client.subscriber().subscribe((ch, message) -> onNotify(message), channel);
+        client.register(this);
+    }
+
+    /**
+     * 本地快照（按需加载、补齐失效字段）
+     */
+    private Map<String, String> local() {
+        Map<String, String> snap = snapshot;
+        if (snap != null && staleFields.isEmpty() && isExpired() == false) {
+            return snap;
+        }
+
+        synchronized (lock) {
+            snap = snapshot;
+
+            if (snap == null || isExpired()) {
+                snap = load();
+                snap.keySet().removeAll(bytesFields);
+                snapshot = snap;
+                loadedAt = System.currentTimeMillis();
+                staleFields.clear();
+            } else if (staleFields.size() > 0) {
+                String[] fields = staleFields.stream()
+                        .filter(f -> bytesFields.contains(f) == false)
+                        .toArray(String[]::new);
+
+                if (fields.length > 0) {
+                    List<String> values = client.openAndGet(s -> s.key(hashName).hashGetMore(fields));
+
+                    for (int i = 0; i < fields.length; i++) {
+                        String val = values.get(i);
+                        if (val == null) {
+                            snap.remove(fields[i]);
+                        } else {
+                            snap.put(fields[i], val);
+                        }
+                    }
+                }
+
+                staleFields.clear();
+            }
+
+            //未写入服务端的本地写入，仍以本地为准
+            snap.putAll(inFlight);
+            snap.putAll(pending);
+
+            return snap;
+        }
+    }
+
+    private boolean isExpired() {
+        return refreshMillis > 0 && System.currentTimeMillis() - loadedAt >= refreshMillis;
+    }
+
+    /**
+     * 整体加载（大哈希用 HSCAN 分页，避免单次 HGETALL 阻塞服务端）
+     */
+    private Map<String, String> load() {
+        return client.openAndGet(s -> {
+            if (s.key(hashName).hashLen() <= SCAN_THRESHOLD) {
+                return new ConcurrentHashMap<>(s.key(hashName).hashGetAll());
+            } else {
+                return s.key(hashName).hashScanStream("*", SCAN_PAGE_SIZE)
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> b, ConcurrentHashMap::new));
+            }
+        });
+    }
+
+    private void onNotify(String message) {
+        if (message.startsWith(instanceId)) {
+            return; //自己发的
+        }
+
+        //消息：发送者Id + 类型 + 字段
+        int idx = message.indexOf(':');
+        if (idx < 0) {
+            return;
+        }
+
+        String type = message.substring(idx);
+
+        synchronized (lock) {
+            if (type.equals(NOTIFY_ALL)) {
+                snapshot = null;
+                staleFields.clear();
+                bytesFields.clear();
+            } else if (type.startsWith(NOTIFY_BYTES)) {
+                String field = type.substring(NOTIFY_BYTES.length());
+                bytesFields.add(field);
+                staleFields.remove(field);
+                if (snapshot != null) {
+                    snapshot.remove(field);
+                }
+            } else if (type.startsWith(NOTIFY_FIELD)) {
+                String field = type.substring(NOTIFY_FIELD.length());
+                bytesFields.remove(field);
+                if (snapshot != null) {
+                    staleFields.add(field);
+                }
+            }
+        }
+    }
+
+    private void notify(String type, Collection<String> fields) {
+        for (String field : fields) {
+            client.publisher().publish(channel, instanceId + type + field);
+        }
+    }
+
+    /**
+     * 重新加载快照（下次读取时）
+     */
+    public void refresh() {
+        synchronized (lock) {
+            snapshot = null;
+            staleFields.clear();
+            bytesFields.clear();
+        }
+    }
+
+    /**
+     * 待写入的字段数
+     */
+    public int pendingSize() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 写入缓冲的字段（一次 HSET 多字段），并通知其它节点
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            Map<String, String> batch;
+            synchronized (lock) {
+                if (flushTask != null) {
+                    flushTask.cancel(false);
+                    flushTask = null;
+                }
+
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                inFlight = batch;
+            }
+
+            try {
+                client.open(s -> s.key(hashName).expire(inSeconds).hashSetAll(batch));
+            } catch (RuntimeException e) {
+                //放回缓冲（期间更新过的字段以新值为准），稍后重试
+                synchronized (lock) {
+                    inFlight = Collections.emptyMap();
+                    batch.forEach(pending::putIfAbsent);
+                    scheduleFlush(RETRY_MILLIS);
+                }
+                throw e;
+            }
+
+            synchronized (lock) {
+                inFlight = Collections.emptyMap();
+            }
+
+            notify(NOTIFY_FIELD, batch.keySet());
+        }
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        if (flushTask == null) {
+            flushTask = client.scheduleOnWorker(() -> {
+                try {
+                    flush();
+                } catch (Throwable e) {
+                    //已放回缓冲，稍后重试
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public int size() {
+        return local().size();
+    }
+
+    @Override
+    public boolean containsKey(Object field) {
+        return local().containsKey(field.toString());
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return local().containsValue(value);
+    }
+
+    @Override
+    public String get(Object field) {
+        return local().get(field.toString());
+    }
+
+    @Override
+    public List<String> getMore(String... fields) {
+        Map<String, String> snap = local();
+
+        List<String> vals = new ArrayList<>(fields.length);
+        for (String field : fields) {
+            vals.add(snap.get(field));
+        }
+        return vals;
+    }
+
+    @Override
+    public <T> T getAndDeserialize(String field, Type type) {
+        String val = get(field);
+
+        if (val == null) {
+            return null;
+        } else {
+            return (T) client.serializer().decode(val, type);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String field) {
+        return CompletableFuture.completedFuture(get(field));
+    }
+
+    @Override
+    public String put(String field, String value) {
+        AssertUtil.notNull(value, "redis hash value cannot be null");
+
+        boolean full;
+        synchronized (lock) {
+            pending.put(field, value);
+            staleFields.remove(field);
+            bytesFields.remove(field);
+
+            Map<String, String> snap = snapshot;
+            if (snap != null) {
+                snap.put(field, value);
+            }
+
+            full = pending.size() >= batchSize;
+            if (full == false) {
+                scheduleFlush(flushMillis);
+            }
+        }
+
+        if (full) {
+            flush();
+        }
+
+        return value;
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(String field, String value) {
+        put(field, value);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void putAndSerialize(String field, Object obj) {
+        AssertUtil.notNull(obj, "redis hash value cannot be null");
+
+        put(field, client.serializer().encode(obj));
+    }
+
+    @Override
+    public void putBytes(String field, byte[] value) {
+        synchronized (writeLock) {
+            flush();
+            super.putBytes(field, value);
+        }
+
+        //二进制值不进快照（重新获取时也跳过）
+        synchronized (lock) {
+            bytesFields.add(field);
+            staleFields.remove(field);
+            if (snapshot != null) {
+                snapshot.remove(field);
+            }
+        }
+
+        notify(NOTIFY_BYTES, Collections.singletonList(field));
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String> m) {
+        for (Map.Entry<? extends String, ? extends String> kv : m.entrySet()) {
+            put(kv.getKey(), kv.getValue());
+        }
+    }
+
+    /**
+     * 删除（先写入缓冲的字段，再以脚本获取并删除，一次往返）
+     */
+    @Override
+    public String remove(Object field) {
+        String val;
+        synchronized (writeLock) {
+            flush();
+            val = super.remove(field);
+        }
+
+        synchronized (lock) {
+            Map<String, String> snap = snapshot;
+            if (snap != null) {
+                snap.remove(field.toString());
+            }
+            staleFields.remove(field.toString());
+            bytesFields.remove(field.toString());
+        }
+
+        notify(NOTIFY_FIELD, Collections.singletonList(field.toString()));
+
+        return val;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            synchronized (lock) {
+                pending.clear();
+                staleFields.clear();
+                bytesFields.clear();
+                snapshot = new ConcurrentHashMap<>();
+                loadedAt = System.currentTimeMillis();
+            }
+
+            super.clear();
+        }
+
+        client.publisher().publish(channel, instanceId + NOTIFY_ALL);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(local().keySet());
+    }
+
+    @Override
+    public Collection<String> values() {
+        return Collections.unmodifiableCollection(local().values());
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return Collections.unmodifiableMap(local()).entrySet();
+    }
+
+    /**
+     * 关闭（写入缓冲的字段，并取消通知订阅；未关闭的，在关闭客户端时关闭）
+     */
+    @Override
+    public void close() {
+        client.unregister(this);
+
+        try {
+            flush();
+        } finally {
+            subscription.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.RedisPipelineSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis 计数缓冲（增量先在本地累加，定时或累计到一定次数时，以管道 INCRBY 批量刷写）
+ * <p>
+ * 进程崩溃时，最多丢失一个刷写周期内的增量
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisCounterBuffer implements AutoCloseable {
+    private final RedisClient client;
+    private final long maxPending;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private List<Map.Entry<String, Counter>> retired = new ArrayList<>(); //由 this 同步（上次移除的空闲计数器）
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledFuture<?> flushTask;
+
+    /**
+     * @param flushMillis 刷写间隔（毫秒）
+     * @param maxPending  累计增量次数达到时，提前刷写
+     */
+    public RedisCounterBuffer(RedisClient client, long flushMillis, long maxPending) {
+        this.client = client;
+        this.maxPending = Math.max(1, maxPending);
+
+        this.flushTask = client.scheduleOnWorkerWithFixedDelay(this::flushQuietly,
+                flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 本地累加
+     *
+     * @param inSeconds 过期秒数（-1 为永久；以最后一次累加的为准）
+     */
+    public void add(String atomicName, int inSeconds, long num) {
+        Counter counter = counters.computeIfAbsent(atomicName, k -> new Counter(inSeconds));
+        counter.inSeconds = inSeconds;
+        counter.adder.add(num);
+
+        if (pending.incrementAndGet() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            try {
+                client.worker().execute(() -> {
+                    flushScheduled.set(false);
+                    flushQuietly();
+                });
+            } catch (RuntimeException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * 本地未刷写的增量
+     */
+    public long pending(String atomicName) {
+        Counter counter = counters.get(atomicName);
+        return counter == null ? 0L : counter.adder.sum();
+    }
+
+    /**
+     * 刷写（管道批量 INCRBY；失败时增量退回本地，下次再刷）
+     * <p>
+     * 一个周期内没有增量的计数器会被移除（名字常带时间段，避免无限增长）；移除后仍可能有并发累加落在它上面，下次刷写时一并刷出
+     */
+    public synchronized void flush() {
+        pending.set(0);
+
+        List<String> names = new ArrayList<>();
+        List<Long> nums = new ArrayList<>();
+        List<Integer> ttls = new ArrayList<>();
+
+        //上次移除的计数器（刷出移除期间落在上面的增量）
+        for (Map.Entry<String, Counter> kv : retired) {
+            long num = kv.getValue().adder.sumThenReset();
+            if (num != 0) {
+                names.add(kv.getKey());
+                nums.add(num);
+                ttls.add(kv.getValue().inSeconds);
+            }
+        }
+
+        retired = new ArrayList<>();
+
+        for (Map.Entry<String, Counter> kv : counters.entrySet()) {
+            Counter counter = kv.getValue();
+            //先取快照再扣减，不会丢失并发累加的增量
+            long num = counter.adder.sum();
+            if (num != 0) {
+                counter.adder.add(-num);
+                names.add(kv.getKey());
+                nums.add(num);
+                ttls.add(counter.inSeconds);
+            } else if (counters.remove(kv.getKey(), counter)) {
+                retired.add(kv);
+            }
+        }
+
+        if (names.isEmpty()) {
+            return;
+        }
+
+        try (RedisPipelineSession session = client.openPipeline()) {
+            for (int i = 0; i < names.size(); i++) {
+                session.key(names.get(i)).expire(ttls.get(i)).incr(nums.get(i));
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < names.size(); i++) {
+                int inSeconds = ttls.get(i);
+                counters.computeIfAbsent(names.get(i), k -> new Counter(inSeconds)).adder.add(nums.get(i));
+            }
+            throw e;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            //增量已退回本地，下个周期再刷
+        }
+    }
+
+    /**
+     * 关闭（停止定时，并刷写剩余的增量；刷写失败时抛出异常，增量丢失）
+     */
+    @Override
+    public void close() {
+        flushTask.cancel(false);
+
+        //两次：第二次刷出移除计数器时并发落入的增量
+        flush();
+        flush();
+    }
+
+    private static class Counter {
+        final LongAdder adder = new LongAdder();
+        volatile int inSeconds;
+
+        Counter(int inSeconds) {
+            this.inSeconds = inSeconds;
+        }
+    }
+}
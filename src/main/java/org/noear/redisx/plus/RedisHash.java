@@ -2,19 +2,32 @@ package org.noear.redisx.plus;
 
 import org.noear.redisx.RedisClient;
 import org.noear.redisx.utils.AssertUtil;
+import org.noear.redisx.utils.LuaScript;
 import org.noear.redisx.utils.TextUtil;
 
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * @author noear
  * @since 1.2
  */
 public class RedisHash implements Map<String,String> {
-    private final RedisClient client;
-    private final String hashName;
-    private final int inSeconds;//永久:-1
+    //获取并删除字段（一次往返；redis 8 才有 HGETDEL）
+    private static final LuaScript REMOVE_SCRIPT = new LuaScript(
+            "local v = redis.call('hget', KEYS[1], ARGV[1]) " +
+                    "if v then redis.call('hdel', KEYS[1], ARGV[1]) end " +
+                    "return v");
+
+    //超过此数量时，并行反序列化
+    private static final int PARALLEL_DECODE_THRESHOLD = 1000;
+
+    protected final RedisClient client;
+    protected final String hashName;
+    protected final int inSeconds;//永久:-1
 
     public RedisHash(RedisClient client, String hashName) {
         this(client, hashName, -1);
@@ -78,11 +91,135 @@ public class RedisHash implements Map<String,String> {
         }
     }
 
+    /**
+     * 异步获取并反序列化
+     *
+     * @since 1.9
+     */
+    public <T> CompletableFuture<T> getAndDeserializeAsync(String field, Type type) {
+        return getAsync(field).thenApply(val -> {
+            if (val == null) {
+                return null;
+            } else {
+                return (T) client.serializer().decode(val, type);
+            }
+        });
+    }
+
+    /**
+     * 异步获取
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<String> getAsync(String field) {
+        return client.async().submit(s -> s.key(hashName).hashGet(field));
+    }
+
     @Override
     public String get(Object field) {
         return client.openAndGet(s -> s.key(hashName).hashGet(field.toString()));
     }
 
+    /**
+     * 获取更多（一次 HMGET；不存在的字段为 null）
+     *
+     * @since 1.9
+     */
+    public List<String> getMore(String... fields) {
+        return client.openAndGet(s -> s.key(hashName).hashGetMore(fields));
+    }
+
+    /**
+     * 获取更多并反序列化（不存在的字段为 null）
+     *
+     * @since 1.9
+     */
+    public <T> List<T> getMoreAndDeserialize(Class<T> clz, String... fields) {
+        return getMoreAndDeserialize((Type) clz, fields);
+    }
+
+    /**
+     * 获取更多并反序列化（不存在的字段为 null；数量大时并行反序列化）
+     *
+     * @since 1.9
+     */
+    public <T> List<T> getMoreAndDeserialize(Type type, String... fields) {
+        return decodeAll(getMore(fields), type);
+    }
+
+    /**
+     * 获取所有并反序列化
+     *
+     * @since 1.9
+     */
+    public <T> Map<String, T> getAllAndDeserialize(Class<T> clz) {
+        return getAllAndDeserialize((Type) clz);
+    }
+
+    /**
+     * 获取所有并反序列化（数量大时并行反序列化；很大的哈希，用 scanAndDeserialize）
+     *
+     * @since 1.9
+     */
+    public <T> Map<String, T> getAllAndDeserialize(Type type) {
+        List<String> fields = new ArrayList<>();
+        List<String> vals = new ArrayList<>();
+        for (Entry<String, String> kv : entrySet()) {
+            fields.add(kv.getKey());
+            vals.add(kv.getValue());
+        }
+
+        List<T> objs = decodeAll(vals, type);
+
+        Map<String, T> map = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            map.put(fields.get(i), objs.get(i));
+        }
+        return map;
+    }
+
+    /**
+     * 扫描（HSCAN 跟随游标的懒加载流，适合很大的哈希）
+     *
+     * @param fieldPattern 字段匹配模式
+     * @param pageSize     每页数量
+     * @since 1.9
+     */
+    public Stream<Entry<String, String>> scan(String fieldPattern, int pageSize) {
+        return client.openAndGet(s -> s.key(hashName).hashScanStream(fieldPattern, pageSize));
+    }
+
+    /**
+     * 扫描并反序列化（HSCAN 跟随游标的懒加载流，逐个反序列化）
+     *
+     * @param fieldPattern 字段匹配模式
+     * @param pageSize     每页数量
+     * @since 1.9
+     */
+    public <T> Stream<Entry<String, T>> scanAndDeserialize(String fieldPattern, int pageSize, Type type) {
+        return scan(fieldPattern, pageSize)
+                .map(kv -> new AbstractMap.SimpleImmutableEntry<>(kv.getKey(), (T) client.serializer().decode(kv.getValue(), type)));
+    }
+
+    private <T> List<T> decodeAll(List<String> vals, Type type) {
+        if (vals == null) {
+            return null;
+        }
+
+        Object[] objs = new Object[vals.size()];
+        IntStream range = IntStream.range(0, objs.length);
+        if (objs.length > PARALLEL_DECODE_THRESHOLD) {
+            range = range.parallel();
+        }
+
+        range.forEach(i -> {
+            String val = vals.get(i);
+            objs[i] = (val == null ? null : client.serializer().decode(val, type));
+        });
+
+        return (List<T>) Arrays.asList(objs);
+    }
+
     public int getAsInt(String field) {
         String tmp = this.get(field);
         return TextUtil.isEmpty(tmp) ? 0 : Integer.parseInt(tmp);
@@ -112,6 +249,50 @@ public class RedisHash implements Map<String,String> {
         client.open(s -> s.key(hashName).expire(inSeconds).hashSet(field, value));
     }
 
+    /**
+     * 设置二进制
+     *
+     * @since 1.9
+     */
+    public void putBytes(String field, byte[] value) {
+        client.open(s -> s.key(hashName).expire(inSeconds).hashSetBytes(field, value));
+    }
+
+    /**
+     * 设置并二进制序列化（与 putAndSerialize 的格式不通用）
+     *
+     * @since 1.9
+     */
+    public void putAndSerializeBinary(String field, Object obj) {
+        AssertUtil.notNull(obj, "redis hash value cannot be null");
+
+        putBytes(field, client.binarySerializer().encodeBytes(obj));
+    }
+
+    /**
+     * 获取二进制
+     *
+     * @since 1.9
+     */
+    public byte[] getBytes(String field) {
+        return client.openAndGet(s -> s.key(hashName).hashGetBytes(field));
+    }
+
+    /**
+     * 获取并二进制反序列化
+     *
+     * @since 1.9
+     */
+    public <T> T getAndDeserializeBinary(String field, Type type) {
+        byte[] val = getBytes(field);
+
+        if (val == null) {
+            return null;
+        } else {
+            return (T) client.binarySerializer().decodeBytes(val, type);
+        }
+    }
+
     @Override
     public String put(String field, String value) {
         client.open(s -> s.key(hashName).expire(inSeconds).hashSet(field, value));
@@ -119,6 +300,28 @@ public class RedisHash implements Map<String,String> {
         return value;
     }
 
+    /**
+     * 异步设置
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<Void> putAsync(String field, String value) {
+        return client.async().execute(s -> s.key(hashName).expire(inSeconds).hashSet(field, value));
+    }
+
+    /**
+     * 异步设置并序列化
+     *
+     * @since 1.9
+     */
+    public CompletableFuture<Void> putAndSerializeAsync(String field, Object obj) {
+        AssertUtil.notNull(obj, "redis hash value cannot be null");
+
+        String value = client.serializer().encode(obj);
+
+        return putAsync(field, value);
+    }
+
     public void put(String field, int value) {
         put(field, String.valueOf(value));
     }
@@ -138,19 +341,31 @@ public class RedisHash implements Map<String,String> {
 
     @Override
     public String remove(Object field) {
-        return client.openAndGet(s -> {
-            String val = s.key(hashName).hashGet(field.toString());
-            if (val != null) {
-                s.key(hashName).hashDel(field.toString());
-            }
+        return (String) client.openAndGet(s -> REMOVE_SCRIPT.eval(s.jedis(),
+                Collections.singletonList(hashName), Collections.singletonList(field.toString())));
+    }
 
-            return val;
-        });
+    /**
+     * 设置所有并序列化（一次 HSET 多字段）
+     *
+     * @since 1.9
+     */
+    public void putAllAndSerialize(Map<String, ?> map) {
+        Map<String, String> vals = new LinkedHashMap<>();
+        for (Entry<String, ?> kv : map.entrySet()) {
+            AssertUtil.notNull(kv.getValue(), "redis hash value cannot be null");
+
+            vals.put(kv.getKey(), client.serializer().encode(kv.getValue()));
+        }
+
+        if (vals.size() > 0) {
+            putAll(vals);
+        }
     }
 
     @Override
     public void putAll(Map<? extends String, ? extends String> m) {
-        client.open(s -> s.key(hashName).hashSetAll(m));
+        client.open(s -> s.key(hashName).expire(inSeconds).hashSetAll(m));
     }
 
     @Override
@@ -1,6 +1,7 @@
 package org.noear.redisx.plus;
 
 import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.LuaScript;
 
 import java.util.concurrent.TimeUnit;
 
@@ -10,13 +11,28 @@ import java.util.concurrent.TimeUnit;
  * @author noear
  * @since 1.0
  * */
-public class RedisLock {
-    private final RedisClient client;
-    private final String lockName;
+public class RedisLock extends AbstractRedisLock {
+    //加锁：成功返回 nil，失败返回剩余毫秒
+    private static final LuaScript LOCK_SCRIPT = new LuaScript(
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return nil end " +
+                    "return redis.call('pttl', KEYS[1])");
+
+    //解锁：持有人相同（或强制）才删除，并发布释放通知
+    private static final LuaScript UNLOCK_SCRIPT = new LuaScript(
+            "if ARGV[3] == '1' or redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "local n = redis.call('del', KEYS[1]) " +
+                    "redis.call('publish', ARGV[2], KEYS[1]) " +
+                    "return n end " +
+                    "return 0");
+
+    //续期：持有人相同才续期
+    private static final LuaScript RENEW_SCRIPT = new LuaScript(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return 0");
 
     public RedisLock(RedisClient client, String lockName) {
-        this.client = client;
-        this.lockName = lockName;
+        super(client, lockName);
     }
 
     /**
@@ -33,6 +49,7 @@ public class RedisLock {
      * @param timeUnit 时间单位
      * @param holder   持有人
      */
+    @Override
     public boolean tryLock(long time, TimeUnit timeUnit, String holder) {
         return client.openAndGet((s) -> s.key(lockName).expire(time, timeUnit).lock(holder));
     }
@@ -74,35 +91,31 @@ public class RedisLock {
     }
 
 
-    /**
-     * 解锁
-     */
-    public void unLock(String holder) {
-        client.open((s) -> {
-            if (holder == null || holder.equals(s.key(lockName).get())) {
-                s.key(lockName).delete();
-            }
-        });
+    @Override
+    protected Long tryAcquire(String holder, long leaseMillis) {
+        return (Long) eval(LOCK_SCRIPT, holder, String.valueOf(leaseMillis));
     }
 
-    /**
-     * 解锁
-     */
-    public void unLock() {
-        unLock(null);
+    @Override
+    protected boolean renew(String holder, long leaseMillis) {
+        Long rst = (Long) eval(RENEW_SCRIPT, holder, String.valueOf(leaseMillis));
+        return rst != null && rst > 0;
     }
 
-    /**
-     * 检查是否已被锁定
-     */
-    public boolean isLocked() {
-        return client.openAndGet((s) -> s.key(lockName).exists());
+    @Override
+    protected long release(String holder) {
+        Long rst = (Long) eval(UNLOCK_SCRIPT,
+                holder == null ? "" : holder,
+                RedisLockNotifier.CHANNEL,
+                holder == null ? "1" : "0");
+
+        return (rst != null && rst > 0) ? 0 : -1;
     }
 
     /**
-     * 获取剩余时间
+     * 解锁
      */
-    public long ttl() {
-        return client.openAndGet((s) -> s.key(lockName).ttl());
+    public void unLock() {
+        unLock(null);
     }
 }
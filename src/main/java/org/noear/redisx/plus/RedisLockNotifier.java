@@ -0,0 +1,164 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Redis 锁通知器（释放通知，及续期看门狗；客户端内共享一个订阅）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisLockNotifier implements AutoCloseable {
+    /**
+     * 锁释放通知频道（消息为锁名）
+     */
+    public static final String CHANNEL = "redisx:lock:released";
+
+    private final RedisClient client;
+    private final Map<String, Signal> signals = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> watchdogs = new ConcurrentHashMap<>();
+    private volatile RedisSubscriber.Subscription subscription;
+
+    public RedisLockNotifier(RedisClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 登记等待（要在尝试加锁之前登记，避免错过通知）
+     */
+    public Signal register(String lockName) {
+        subscribeIfAbsent();
+
+        return signals.compute(lockName, (k, v) -> {
+            if (v == null) {
+                v = new Signal();
+            }
+            v.waiters++;
+            return v;
+        });
+    }
+
+    /**
+     * 释放通知是否已就绪（订阅已被服务端确认；未就绪时，等待者要缩短等待，避免错过通知后空等到锁过期）
+     */
+    public boolean isReady() {
+        return subscription != null && client.subscriber().isReady(CHANNEL);
+    }
+
+    /**
+     * 取消等待登记
+     */
+    public void unregister(String lockName) {
+        signals.computeIfPresent(lockName, (k, v) -> (--v.waiters == 0 ? null : v));
+    }
+
+    /**
+     * 通知本地等待者（收到释放消息时）
+     */
+    public void signal(String lockName) {
+        Signal signal = signals.get(lockName);
+
+        if (signal != null) {
+            synchronized (signal) {
+                signal.generation++;
+                signal.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 开始看门狗续期（每 1/3 租期续一次；renew 返回 false 时停止）
+     */
+    public void watch(String lockName, String holder, long leaseMillis, BooleanSupplier renew) {
+        String key = lockName + "\n" + holder;
+        long period = Math.max(1, leaseMillis / 3);
+
+        ScheduledFuture<?> future = client.leaseScheduler().scheduleAtFixedRate(() -> {
+            boolean held;
+            try {
+                held = renew.getAsBoolean();
+            } catch (Throwable e) {
+                held = true; //网络抖动等，下个周期再试
+            }
+
+            if (held == false) {
+                unwatch(lockName, holder);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        ScheduledFuture<?> old = watchdogs.put(key, future);
+        if (old != null) {
+            old.cancel(false);
+        }
+    }
+
+    /**
+     * 停止看门狗续期
+     */
+    public void unwatch(String lockName, String holder) {
+        ScheduledFuture<?> future = watchdogs.remove(lockName + "\n" + holder);
+
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 有等待者时才订阅
+     */
+    private void subscribeIfAbsent() {
+        if (subscription == null) {
+            synchronized (this) {
+                if (subscription == null) {
+                    subscription = client.subscriber().subscribe((channel, lockName) -> signal(lockName), CHANNEL);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ScheduledFuture<?> future : watchdogs.values()) {
+            future.cancel(false);
+        }
+        watchdogs.clear();
+
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * 等待信号
+     */
+    public static class Signal {
+        private int waiters;
+        private long generation;
+
+        /**
+         * 当前代数（尝试加锁之前获取）
+         */
+        public synchronized long generation() {
+            return generation;
+        }
+
+        /**
+         * 等待代数变化（即有释放通知），或超时
+         */
+        public synchronized void await(long gen, long millis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + millis;
+            long remaining = millis;
+
+            while (generation == gen && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+    }
+}
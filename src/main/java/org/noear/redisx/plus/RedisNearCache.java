@@ -0,0 +1,237 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Redis 近端缓存（进程内一级缓存，通过总线广播失效）
+ * <p>
+ * 缓存的是解码后的共享对象，取出后不要修改
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisNearCache implements AutoCloseable {
+    private static final String INVALIDATE_ALL = "*";
+
+    private final RedisClient client;
+    private final String channel;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<String, Item> entries;
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final RedisSubscriber.Subscription subscription;
+
+    /**
+     * @param channel    失效通知的总线频道
+     * @param maxSize    最大条目数
+     * @param ttlSeconds 本地存活秒数
+     */
+    public RedisNearCache(RedisClient client, String channel, int maxSize, int ttlSeconds) {
+        this.client = client;
+        this.channel = channel;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+
+        this.entries = new LinkedHashMap<String, Item>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Item> eldest) {
+                if (size() > RedisNearCache.this.maxSize) {
+                    evictionCount.increment();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+
+        this.subscription = client.subscriber().subscribe((ch, key) -> {
+            if (INVALIDATE_ALL.equals(key)) {
+                clearLocal();
+            } else {
+                removeLocal(key);
+            }
+        }, channel);
+    }
+
+    /**
+     * 获取（未命中时，通过 loader 加载）
+     */
+    public String get(String key, Function<String, String> loader) {
+        Item entry = getItem(key);
+
+        if (entry != null) {
+            return entry.raw;
+        }
+
+        long ver = version.get();
+        String raw = loader.apply(key);
+
+        if (raw != null) {
+            putLocal(key, new Item(raw, null), ver);
+        }
+
+        return raw;
+    }
+
+    /**
+     * 获取并解码（未命中时，通过 loader 加载；解码结果也会缓存）
+     */
+    public <T> T getAndDecode(String key, Type type, Function<String, String> loader, BiFunction<String, Type, Object> decoder) {
+        Item entry = getItem(key);
+
+        if (entry != null) {
+            Decoded decoded = entry.decoded;
+            if (decoded != null && type.equals(decoded.type)) {
+                return (T) decoded.value;
+            }
+
+            Object value = decoder.apply(entry.raw, type);
+            entry.decoded = new Decoded(type, value);
+            return (T) value;
+        }
+
+        long ver = version.get();
+        String raw = loader.apply(key);
+
+        if (raw == null) {
+            return null;
+        }
+
+        Object value = decoder.apply(raw, type);
+        putLocal(key, new Item(raw, new Decoded(type, value)), ver);
+
+        return (T) value;
+    }
+
+    /**
+     * 失效（本地移除，并通知其它节点）
+     */
+    public void invalidate(String key) {
+        removeLocal(key);
+        client.getBus().publish(channel, key);
+    }
+
+    /**
+     * 全部失效（本地清空，并通知其它节点）
+     */
+    public void invalidateAll() {
+        clearLocal();
+        client.getBus().publish(channel, INVALIDATE_ALL);
+    }
+
+    /**
+     * 命中数
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 未命中数
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 淘汰数（超容量或过期）
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 本地条目数
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Item getItem(String key) {
+        Item entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+
+            if (entry != null && entry.expireAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                evictionCount.increment();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+
+        return entry;
+    }
+
+    private void putLocal(String key, Item entry, long ver) {
+        entry.expireAt = System.currentTimeMillis() + ttlMillis;
+
+        synchronized (entries) {
+            //加载期间有失效发生，则不缓存（避免把旧值放回来）
+            if (version.get() == ver) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+    private void removeLocal(String key) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    private void clearLocal() {
+        synchronized (entries) {
+            version.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+
+        clearLocal();
+    }
+
+    private static class Item {
+        final String raw;
+        volatile Decoded decoded;
+        long expireAt;
+
+        Item(String raw, Decoded decoded) {
+            this.raw = raw;
+            this.decoded = decoded;
+        }
+    }
+
+    private static class Decoded {
+        final Type type;
+        final Object value;
+
+        Decoded(Type type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+}
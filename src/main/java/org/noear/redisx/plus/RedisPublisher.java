@@ -0,0 +1,199 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.RedisPipelineSession;
+import org.noear.redisx.utils.ThreadUtil;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 批量发布器（消息先入队，攒够一批或等满时间后，以管道 PUBLISH/SPUBLISH 一次性发送）
+ * <p>
+ * 同一个发布器内，消息按入队顺序发送。结果为收到消息的订阅者数量
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisPublisher implements AutoCloseable {
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final RedisClient client;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final boolean sharded;
+
+    private final BlockingQueue<Item> queue;
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    /**
+     * @param batchSize    每批最大数量（攒够即发送）
+     * @param lingerMillis 每批最长等待毫秒数（等满即发送）
+     * @param sharded      是否分片发布（SPUBLISH，配合 SSUBSCRIBE 使用；redis 7.0+）
+     */
+    public RedisPublisher(RedisClient client, int batchSize, long lingerMillis, boolean sharded) {
+        this.client = client;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.sharded = sharded;
+        this.queue = new LinkedBlockingQueue<>(this.batchSize * 64);
+
+        this.flusher = ThreadUtil.daemonFactory("redisx-publisher-").newThread(this::flushLoop);
+        this.flusher.start();
+    }
+
+    /**
+     * 是否分片发布
+     */
+    public boolean sharded() {
+        return sharded;
+    }
+
+    /**
+     * 发布（入队即返回；队列满时阻塞等待；已关闭时失败）
+     *
+     * @return 收到消息的订阅者数量
+     */
+    public CompletableFuture<Long> publish(String channel, String message) {
+        Item item = new Item(channel, message);
+
+        boolean queued = false;
+        try {
+            //队列满时等待（关闭后不再等）
+            while (closed == false && queued == false) {
+                queued = queue.offer(item, IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            item.future.completeExceptionally(e);
+            return item.future;
+        }
+
+        //入队后再查一次：关闭时的残留可能已经取过了，还在队列里的由自己移出并失败
+        if (queued == false || (closed && queue.remove(item))) {
+            item.future.completeExceptionally(new IllegalStateException("RedisPublisher is closed"));
+        }
+
+        return item.future;
+    }
+
+    /**
+     * 排队中的数量
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    private void flushLoop() {
+        List<Item> batch = new ArrayList<>(batchSize);
+
+        while (true) {
+            try {
+                Item first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    if (closed) {
+                        break;
+                    } else {
+                        continue;
+                    }
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                //攒批：直到够数，或等满时间（关闭时不再等）
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize && closed == false) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+
+                    Item item = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (item == null) {
+                        break;
+                    }
+
+                    batch.add(item);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                //关闭时仍发送已入队的
+            }
+
+            flush(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+
+        //关闭后残留的
+        queue.drainTo(batch);
+        flush(batch);
+    }
+
+    private void flush(List<Item> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Response<Long>> responses = new ArrayList<>(batch.size());
+
+        try (RedisPipelineSession session = client.openPipeline()) {
+            for (Item item : batch) {
+                if (sharded) {
+                    responses.add(session.spublish(item.channel, item.message));
+                } else {
+                    responses.add(session.publish(item.channel, item.message));
+                }
+            }
+        } catch (Throwable e) {
+            for (Item item : batch) {
+                item.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                batch.get(i).future.complete(responses.get(i).get());
+            } catch (Throwable e) {
+                batch.get(i).future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 关闭（不再接收新消息，发送完已入队的；30 秒内没发送完时，由发送线程继续发送）
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+
+        if (flusher.isAlive()) {
+            return; //发送线程退出前会取走残留的
+        }
+
+        //发送线程退出后，与关闭并发入队的
+        List<Item> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        flush(rest);
+    }
+
+    private static class Item {
+        final String channel;
+        final String message;
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        Item(String channel, String message) {
+            this.channel = channel;
+            this.message = message;
+        }
+    }
+}
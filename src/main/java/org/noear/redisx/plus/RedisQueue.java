@@ -1,8 +1,11 @@
 package org.noear.redisx.plus;
 
 import org.noear.redisx.RedisClient;
+import org.noear.redisx.RedisPipelineSession;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -12,8 +15,10 @@ import java.util.function.Consumer;
  * @since 1.0
  */
 public class RedisQueue {
-    private final RedisClient client;
-    private final String queueName;
+    private static final int BATCH_SIZE = 1000;
+
+    protected final RedisClient client;
+    protected final String queueName;
 
     public RedisQueue(RedisClient client, String queueName) {
         this.client = client;
@@ -33,11 +38,47 @@ public class RedisQueue {
      * 添加全部
      */
     public void addAll(Collection<String> items) {
+        if (items.size() > BATCH_SIZE) {
+            addAll(items, BATCH_SIZE);
+            return;
+        }
+
         client.open(s -> {
             s.key(queueName).listAddRange(items);
         });
     }
 
+    /**
+     * 添加全部（按批拆分，管道一次性发送；避免单个指令的参数过大）
+     *
+     * @param batchSize 每批数量
+     * @since 1.9
+     */
+    public void addAll(Collection<String> items, int batchSize) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        List<String> batch = new ArrayList<>(Math.min(items.size(), batchSize));
+
+        try (RedisPipelineSession session = client.openPipeline()) {
+            session.key(queueName);
+
+            for (String item : items) {
+                batch.add(item);
+
+                if (batch.size() >= batchSize) {
+                    session.listAddRange(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+
+            if (batch.size() > 0) {
+                session.listAddRange(batch);
+            }
+        }
+    }
+
 
     /**
      * 推出
@@ -47,7 +88,16 @@ public class RedisQueue {
     }
 
     /**
-     * 推出更多
+     * 批量推出（一次往返；没有时返回空列表）
+     *
+     * @since 1.9
+     */
+    public List<String> pop(int count) {
+        return client.openAndGet(s -> s.key(queueName).listPop(count));
+    }
+
+    /**
+     * 推出更多（逐个推出并消费；进程中断时，最多丢失正在消费的那一个）
      */
     public void popAll(Consumer<String> consumer) {
         client.open(s -> {
@@ -64,6 +114,97 @@ public class RedisQueue {
         });
     }
 
+    /**
+     * 推出更多（按批推出，逐个消费；消费异常时，本批未消费的放回队列）
+     * <p>
+     * 注意：进程在一批中途崩溃或被杀时，本批已推出未消费的（最多 batchSize - 1 个）会丢失；一次推出一批，也会让其它消费实例分不到
+     *
+     * @param batchSize 每批数量
+     * @since 1.9
+     */
+    public void popAll(int batchSize, Consumer<String> consumer) {
+        drain(batchSize, items -> {
+            for (int i = 0; i < items.size(); i++) {
+                try {
+                    consumer.accept(items.get(i));
+                } catch (RuntimeException e) {
+                    //出错的那个不放回（与逐个推出时一致），其后的按原顺序放回右侧（下次最先推出）
+                    pushBack(items.subList(i + 1, items.size()));
+                    throw e;
+                }
+            }
+        });
+    }
+
+    private void pushBack(List<String> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        String[] reversed = new String[items.size()];
+        for (int i = 0; i < reversed.length; i++) {
+            reversed[i] = items.get(items.size() - 1 - i);
+        }
+
+        client.open(s -> s.jedis().rpush(queueName, reversed));
+    }
+
+    /**
+     * 排空（按批推出并消费，直到队列为空）
+     *
+     * @param batchSize 每批数量
+     * @return 推出的总数
+     * @since 1.9
+     */
+    public long drain(int batchSize, Consumer<List<String>> consumer) {
+        return client.openAndGet(s -> {
+            s.key(queueName);
+            long total = 0;
+
+            while (true) {
+                List<String> items = s.listPop(batchSize);
+                if (items.isEmpty()) {
+                    break;
+                }
+
+                total += items.size();
+                consumer.accept(items);
+
+                if (items.size() < batchSize) {
+                    break;
+                }
+            }
+
+            return total;
+        });
+    }
+
+    /**
+     * 监听（专用线程阻塞推出，交给工作线程处理，不轮询；用完要关闭）
+     *
+     * @param handler     处理器
+     * @param concurrency 并发处理数（有虚拟线程时用虚拟线程）
+     * @since 1.9
+     */
+    public RedisQueueListener listen(Consumer<String> handler, int concurrency) {
+        return new RedisQueueListener(this, handler, concurrency);
+    }
+
+    /**
+     * 阻塞推出（监听用；超时返回 null）
+     */
+    protected String fetch(int timeoutSeconds) {
+        List<String> rst = client.openAndGet(s -> s.jedis().brpop(timeoutSeconds, queueName));
+        return rst == null || rst.size() < 2 ? null : rst.get(1);
+    }
+
+    /**
+     * 处理完成（监听用；普通队列不需要处理）
+     */
+    protected void complete(String item, boolean succeeded) {
+
+    }
+
     /**
      * 预览
      */
@@ -0,0 +1,216 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.utils.ThreadUtil;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Redis 队列监听器（专用线程阻塞推出，交给工作线程处理；工作线程都忙时暂停推出，消息留在队列里）
+ * <p>
+ * 普通队列处理失败时消息即丢弃；可靠队列处理成功后确认，失败后否认（放回队列）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisQueueListener implements AutoCloseable {
+    private static final int FETCH_TIMEOUT_SECONDS = 1;
+    private static final long RETRY_MILLIS = 1000;
+
+    private final RedisQueue queue;
+    private final Consumer<String> handler;
+    private final int concurrency;
+    private final Semaphore permits;
+    private final ExecutorService workers;
+    private final Thread fetcher;
+    private volatile boolean running = true;
+
+    private final long startTime = System.nanoTime();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong latencyMaxNanos = new AtomicLong();
+
+    /**
+     * @param concurrency 并发处理数（也是最多在处理中的消息数）
+     */
+    public RedisQueueListener(RedisQueue queue, Consumer<String> handler, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be greater than 0");
+        }
+
+        this.queue = queue;
+        this.handler = handler;
+        this.concurrency = concurrency;
+        this.permits = new Semaphore(concurrency);
+        this.workers = ThreadUtil.newVirtualOrFixed("redisx-queue-" + queue.queueName + "-", concurrency);
+
+        this.fetcher = ThreadUtil.daemonFactory("redisx-queue-fetcher-" + queue.queueName + "-").newThread(this::fetchLoop);
+        this.fetcher.start();
+    }
+
+    /**
+     * 推出的数量
+     */
+    public long received() {
+        return received.sum();
+    }
+
+    /**
+     * 处理成功的数量
+     */
+    public long succeeded() {
+        return succeeded.sum();
+    }
+
+    /**
+     * 处理失败的数量
+     */
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * 处理中的数量
+     */
+    public int inFlight() {
+        return concurrency - permits.availablePermits();
+    }
+
+    /**
+     * 吞吐量（自启动以来，每秒处理完成的数量）
+     */
+    public double throughput() {
+        double seconds = (System.nanoTime() - startTime) / 1_000_000_000D;
+        return seconds <= 0 ? 0D : (succeeded.sum() + failed.sum()) / seconds;
+    }
+
+    /**
+     * 平均延时（推出到处理完成，毫秒）
+     */
+    public double latencyAvgMillis() {
+        long count = succeeded.sum() + failed.sum();
+        return count == 0 ? 0D : latencyNanos.sum() / 1_000_000D / count;
+    }
+
+    /**
+     * 最大延时（推出到处理完成，毫秒）
+     */
+    public double latencyMaxMillis() {
+        return latencyMaxNanos.get() / 1_000_000D;
+    }
+
+    private void fetchLoop() {
+        while (running) {
+            try {
+                permits.acquire(); //工作线程都忙时，不再推出
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            if (running == false) {
+                permits.release();
+                break;
+            }
+
+            String item = null;
+            try {
+                item = queue.fetch(FETCH_TIMEOUT_SECONDS);
+            } catch (Throwable e) {
+                //连接异常等，稍后重试
+                if (running && sleep(RETRY_MILLIS) == false) {
+                    permits.release();
+                    break;
+                }
+            }
+
+            if (item == null) {
+                permits.release();
+                continue;
+            }
+
+            received.increment();
+
+            long start = System.nanoTime();
+            String tmp = item;
+
+            try {
+                workers.execute(() -> handle(tmp, start));
+            } catch (RejectedExecutionException e) {
+                //已关闭，按失败处理（可靠队列会放回）
+                complete(tmp, false, start);
+            }
+        }
+    }
+
+    private void handle(String item, long start) {
+        boolean ok = false;
+
+        try {
+            handler.accept(item);
+            ok = true;
+        } catch (Throwable e) {
+            //由 failed() 计数
+        } finally {
+            complete(item, ok, start);
+        }
+    }
+
+    private void complete(String item, boolean ok, long start) {
+        try {
+            queue.complete(item, ok);
+        } catch (Throwable e) {
+            //可靠队列在可见超时后会回收
+        } finally {
+            long nanos = System.nanoTime() - start;
+            latencyNanos.add(nanos);
+            latencyMaxNanos.accumulateAndGet(nanos, Math::max);
+
+            if (ok) {
+                succeeded.increment();
+            } else {
+                failed.increment();
+            }
+
+            permits.release();
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 关闭（停止推出，并等待处理中的消息完成，最多 30 秒）
+     */
+    @Override
+    public void close() throws InterruptedException {
+        close(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 关闭（停止推出，并等待处理中的消息完成）
+     *
+     * @return 是否全部完成
+     */
+    public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        running = false;
+        fetcher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+
+        workers.shutdown();
+        return workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,135 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.LuaScript;
+
+/**
+ * Redis 分布式读写锁（可重入；多个读者可同时持有，写者独占；写者可再加读锁，即降级）
+ * <p>
+ * 哈希存储：mode -> read/write，r:持有人 -> 读次数，w:持有人 -> 写次数
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisReadWriteLock {
+    //读锁：无锁、读模式、或自己持有写锁时，读次数加 1；成功返回 nil，失败返回剩余毫秒
+    private static final LuaScript READ_LOCK_SCRIPT = new LuaScript(
+            "local mode = redis.call('hget', KEYS[1], 'mode') " +
+                    "if mode == false or mode == 'read' or redis.call('hexists', KEYS[1], 'w:' .. ARGV[1]) == 1 then " +
+                    "if mode == false then redis.call('hset', KEYS[1], 'mode', 'read') end " +
+                    "redis.call('hincrby', KEYS[1], 'r:' .. ARGV[1], 1) " +
+                    "if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return nil end " +
+                    "return redis.call('pttl', KEYS[1])");
+
+    //写锁：无锁、或自己持有写锁时，写次数加 1；成功返回 nil，失败返回剩余毫秒
+    private static final LuaScript WRITE_LOCK_SCRIPT = new LuaScript(
+            "local mode = redis.call('hget', KEYS[1], 'mode') " +
+                    "if mode == false or (mode == 'write' and redis.call('hexists', KEYS[1], 'w:' .. ARGV[1]) == 1) then " +
+                    "redis.call('hset', KEYS[1], 'mode', 'write') " +
+                    "redis.call('hincrby', KEYS[1], 'w:' .. ARGV[1], 1) " +
+                    "if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return nil end " +
+                    "return redis.call('pttl', KEYS[1])");
+
+    //解锁（ARGV[3] 为字段前缀 r: 或 w:）：次数减 1；没有任何持有时删除并发布释放通知；
+    //写锁完全释放但仍有读持有时，转为读模式并通知；返回剩余次数（未持有为 -1）
+    private static final LuaScript UNLOCK_SCRIPT = new LuaScript(
+            "local field = ARGV[3] .. ARGV[1] " +
+                    "if redis.call('hexists', KEYS[1], field) == 0 then return -1 end " +
+                    "local n = redis.call('hincrby', KEYS[1], field, -1) " +
+                    "if n > 0 then return n end " +
+                    "redis.call('hdel', KEYS[1], field) " +
+                    "if redis.call('hlen', KEYS[1]) <= 1 then " +
+                    "redis.call('del', KEYS[1]) " +
+                    "redis.call('publish', ARGV[2], KEYS[1]) " +
+                    "elseif ARGV[3] == 'w:' then " +
+                    "redis.call('hset', KEYS[1], 'mode', 'read') " +
+                    "redis.call('publish', ARGV[2], KEYS[1]) end " +
+                    "return 0");
+
+    //续期：自己持有才续期
+    private static final LuaScript RENEW_SCRIPT = new LuaScript(
+            "if redis.call('hexists', KEYS[1], ARGV[3] .. ARGV[1]) == 1 then " +
+                    "if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return 1 end " +
+                    "return 0");
+
+    private final ReadLock readLock;
+    private final WriteLock writeLock;
+
+    public RedisReadWriteLock(RedisClient client, String lockName) {
+        this.readLock = new ReadLock(client, lockName);
+        this.writeLock = new WriteLock(client, lockName);
+    }
+
+    /**
+     * 读锁
+     */
+    public AbstractRedisLock readLock() {
+        return readLock;
+    }
+
+    /**
+     * 写锁
+     */
+    public AbstractRedisLock writeLock() {
+        return writeLock;
+    }
+
+    private static class ReadLock extends AbstractRedisLock {
+        ReadLock(RedisClient client, String lockName) {
+            super(client, lockName);
+        }
+
+        @Override
+        protected String watchName() {
+            return lockName + ":read";
+        }
+
+        @Override
+        protected Long tryAcquire(String holder, long leaseMillis) {
+            return (Long) eval(READ_LOCK_SCRIPT, holder, String.valueOf(leaseMillis));
+        }
+
+        @Override
+        protected boolean renew(String holder, long leaseMillis) {
+            Long rst = (Long) eval(RENEW_SCRIPT, holder, String.valueOf(leaseMillis), "r:");
+            return rst != null && rst > 0;
+        }
+
+        @Override
+        protected long release(String holder) {
+            Long rst = (Long) eval(UNLOCK_SCRIPT, holder, RedisLockNotifier.CHANNEL, "r:");
+            return rst == null ? -1 : rst;
+        }
+    }
+
+    private static class WriteLock extends AbstractRedisLock {
+        WriteLock(RedisClient client, String lockName) {
+            super(client, lockName);
+        }
+
+        @Override
+        protected String watchName() {
+            return lockName + ":write";
+        }
+
+        @Override
+        protected Long tryAcquire(String holder, long leaseMillis) {
+            return (Long) eval(WRITE_LOCK_SCRIPT, holder, String.valueOf(leaseMillis));
+        }
+
+        @Override
+        protected boolean renew(String holder, long leaseMillis) {
+            Long rst = (Long) eval(RENEW_SCRIPT, holder, String.valueOf(leaseMillis), "w:");
+            return rst != null && rst > 0;
+        }
+
+        @Override
+        protected long release(String holder) {
+            Long rst = (Long) eval(UNLOCK_SCRIPT, holder, RedisLockNotifier.CHANNEL, "w:");
+            return rst == null ? -1 : rst;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.LuaScript;
+
+/**
+ * Redis 分布式可重入锁（哈希存储：持有人 -> 持有次数）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisReentrantLock extends AbstractRedisLock {
+    //加锁：无人持有或自己持有时，次数加 1；成功返回 nil，失败返回剩余毫秒
+    private static final LuaScript LOCK_SCRIPT = new LuaScript(
+            "if redis.call('exists', KEYS[1]) == 0 or redis.call('hexists', KEYS[1], ARGV[1]) == 1 then " +
+                    "redis.call('hincrby', KEYS[1], ARGV[1], 1) " +
+                    "redis.call('pexpire', KEYS[1], ARGV[2]) " +
+                    "return nil end " +
+                    "return redis.call('pttl', KEYS[1])");
+
+    //解锁：次数减 1，减到 0 时删除并发布释放通知；返回剩余次数（未持有为 -1）
+    private static final LuaScript UNLOCK_SCRIPT = new LuaScript(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return -1 end " +
+                    "local n = redis.call('hincrby', KEYS[1], ARGV[1], -1) " +
+                    "if n > 0 then return n end " +
+                    "redis.call('del', KEYS[1]) " +
+                    "redis.call('publish', ARGV[2], KEYS[1]) " +
+                    "return 0");
+
+    //续期：自己持有才续期
+    private static final LuaScript RENEW_SCRIPT = new LuaScript(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then " +
+                    "return redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return 0");
+
+    public RedisReentrantLock(RedisClient client, String lockName) {
+        super(client, lockName);
+    }
+
+    /**
+     * 获取持有次数
+     *
+     * @param holder 持有人
+     */
+    public int getHoldCount(String holder) {
+        String val = client.openAndGet(s -> s.key(lockName).hashGet(holder));
+        return val == null ? 0 : Integer.parseInt(val);
+    }
+
+    @Override
+    protected Long tryAcquire(String holder, long leaseMillis) {
+        return (Long) eval(LOCK_SCRIPT, holder, String.valueOf(leaseMillis));
+    }
+
+    @Override
+    protected boolean renew(String holder, long leaseMillis) {
+        Long rst = (Long) eval(RENEW_SCRIPT, holder, String.valueOf(leaseMillis));
+        return rst != null && rst > 0;
+    }
+
+    @Override
+    protected long release(String holder) {
+        Long rst = (Long) eval(UNLOCK_SCRIPT, holder, RedisLockNotifier.CHANNEL);
+        return rst == null ? -1 : rst;
+    }
+}
@@ -0,0 +1,338 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.LuaScript;
+import redis.clients.jedis.args.ListDirection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Redis 可靠队列（推出时移入消费者自己的处理中列表，确认后才删除；超过可见超时未确认的，由回收任务放回队列）
+ * <p>
+ * 与 RedisQueue 共用同一个队列键（生产者不需要改动），只能用 take / ack 或 listen 消费（pop 系列不支持）。处理中列表等键以 {queueName} 为哈希标签，与队列键同槽，
+ * 集群下也可以原子移动。需要 redis 6.2+（LMOVE / BLMOVE）；消息至少投递一次，处理要幂等
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisReliableQueue extends RedisQueue {
+    //截止时间以 "序号:消息" 为成员（同样的消息各自一个截止时间，序号从 1 连续编号）
+    private static final String DEADLINE_FUNCTIONS =
+            "local function mark(key, due, item) " +
+                    "local k = 1 " +
+                    "while redis.call('zscore', key, k .. ':' .. item) do k = k + 1 end " +
+                    "redis.call('zadd', key, due, k .. ':' .. item) end " +
+                    "local function earliest(key, item) " +
+                    "local m, at, min = 0, 0, nil " +
+                    "while true do " +
+                    "local s = redis.call('zscore', key, (m + 1) .. ':' .. item) " +
+                    "if not s then break end " +
+                    "m = m + 1 s = tonumber(s) " +
+                    "if min == nil or s < min then min = s at = m end end " +
+                    "return at, m end " +
+                    "local function drop(key, item) " +
+                    "local at, m = earliest(key, item) " +
+                    "if m == 0 then return end " +
+                    "if at < m then redis.call('zadd', key, redis.call('zscore', key, m .. ':' .. item), at .. ':' .. item) end " +
+                    "redis.call('zrem', key, m .. ':' .. item) end ";
+
+    //推出：移入处理中列表，并记录可见截止时间与消费者存活截止时间
+    private static final LuaScript TAKE_SCRIPT = new LuaScript(DEADLINE_FUNCTIONS +
+            "local item = redis.call('lmove', KEYS[1], KEYS[2], 'RIGHT', 'LEFT') " +
+            "redis.call('zadd', KEYS[4], ARGV[1], ARGV[2]) " +
+            "if item then mark(KEYS[3], ARGV[1], item) end " +
+            "return item");
+
+    //标记：BLMOVE 之后补记截止时间
+    private static final LuaScript MARK_SCRIPT = new LuaScript(DEADLINE_FUNCTIONS +
+            "redis.call('zadd', KEYS[1], ARGV[1], ARGV[3]) " +
+            "mark(KEYS[2], ARGV[1], ARGV[2]) " +
+            "return 1");
+
+    //确认：移出处理中列表（最早推出的那个），并删除最早的截止时间
+    private static final LuaScript ACK_SCRIPT = new LuaScript(DEADLINE_FUNCTIONS +
+            "local n = redis.call('lrem', KEYS[1], -1, ARGV[1]) " +
+            "if n > 0 then drop(KEYS[2], ARGV[1]) end " +
+            "return n");
+
+    //否认：移出处理中列表，并放回队列（下一个被推出）
+    private static final LuaScript NACK_SCRIPT = new LuaScript(DEADLINE_FUNCTIONS +
+            "local n = redis.call('lrem', KEYS[1], -1, ARGV[1]) " +
+            "if n > 0 then drop(KEYS[2], ARGV[1]) redis.call('rpush', KEYS[3], ARGV[1]) end " +
+            "return n");
+
+    //延长：最早的截止时间，以及消费者存活截止时间
+    private static final LuaScript TOUCH_SCRIPT = new LuaScript(DEADLINE_FUNCTIONS +
+            "local at, m = earliest(KEYS[1], ARGV[2]) " +
+            "if m == 0 then return 0 end " +
+            "redis.call('zadd', KEYS[1], ARGV[1], at .. ':' .. ARGV[2]) " +
+            "redis.call('zadd', KEYS[2], ARGV[1], ARGV[3]) " +
+            "return 1");
+
+    //回收：已超时的放回队列；消费者失联时（存活截止时间已过），处理中的全部放回
+    private static final LuaScript REAP_SCRIPT = new LuaScript(DEADLINE_FUNCTIONS +
+            "local now = tonumber(ARGV[1]) " +
+            "local alive = redis.call('zscore', KEYS[4], ARGV[2]) " +
+            "if (not alive) or tonumber(alive) < now then " +
+            "local items = redis.call('lrange', KEYS[1], 0, -1) " +
+            "for i = 1, #items do redis.call('rpush', KEYS[3], items[i]) end " +
+            "redis.call('del', KEYS[1], KEYS[2]) " +
+            "redis.call('zrem', KEYS[4], ARGV[2]) " +
+            "return #items end " +
+            "local n = 0 " +
+            "while true do " +
+            "local due = redis.call('zrangebyscore', KEYS[2], '-inf', now, 'LIMIT', 0, 1) " +
+            "if #due == 0 then break end " +
+            "local item = string.sub(due[1], string.find(due[1], ':', 1, true) + 1) " +
+            "drop(KEYS[2], item) " +
+            "if redis.call('lrem', KEYS[1], -1, item) > 0 then redis.call('rpush', KEYS[3], item) n = n + 1 end end " +
+            "return n");
+
+    private final String consumerId;
+    private final long visibilityMillis;
+
+    private final String processingKey;
+    private final String deadlineKey;
+    private final String consumersKey;
+
+    /**
+     * @param consumerId        消费者Id（同一个消费者重启后，用相同的Id可以接着处理）
+     * @param visibilitySeconds 可见超时（推出后超过此时间未确认，会被放回队列）
+     */
+    public RedisReliableQueue(RedisClient client, String queueName, String consumerId, int visibilitySeconds) {
+        super(client, queueName);
+
+        if (visibilitySeconds < 1) {
+            throw new IllegalArgumentException("visibilitySeconds must be greater than 0");
+        }
+
+        this.consumerId = consumerId;
+        this.visibilityMillis = TimeUnit.SECONDS.toMillis(visibilitySeconds);
+
+        String tag = hashTag(queueName);
+        this.processingKey = tag + ":processing:" + consumerId;
+        this.deadlineKey = tag + ":deadline:" + consumerId;
+        this.consumersKey = tag + ":consumers";
+
+        //同一个队列只调度一个回收任务（客户端内共享，随客户端关闭）
+        long period = Math.max(1000L, visibilityMillis / 2);
+        client.scheduleSharedOnWorkerWithFixedDelay("redisx:reliable-queue:reaper:" + queueName,
+                this::reapQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 消费者Id
+     */
+    public String consumerId() {
+        return consumerId;
+    }
+
+    /**
+     * 推出（移入处理中列表；没有时返回 null）
+     */
+    public String take() {
+        long deadline = System.currentTimeMillis() + visibilityMillis;
+
+        return (String) client.openAndGet(s -> TAKE_SCRIPT.eval(s.jedis(),
+                Arrays.asList(queueName, processingKey, deadlineKey, consumersKey),
+                Arrays.asList(String.valueOf(deadline), consumerId)));
+    }
+
+    /**
+     * 推出（队列为空时阻塞等待，空闲时不轮询；超时返回 null）
+     *
+     * @param timeoutSeconds 等待秒数（要小于可见超时，以及连接的读超时）
+     */
+    public String take(int timeoutSeconds) {
+        String item = take();
+        if (item != null) {
+            return item;
+        }
+
+        item = client.openAndGet(s -> s.jedis().blmove(queueName, processingKey,
+                ListDirection.RIGHT, ListDirection.LEFT, timeoutSeconds));
+
+        if (item != null) {
+            long deadline = System.currentTimeMillis() + visibilityMillis;
+            String tmp = item;
+
+            client.open(s -> MARK_SCRIPT.eval(s.jedis(),
+                    Arrays.asList(consumersKey, deadlineKey),
+                    Arrays.asList(String.valueOf(deadline), tmp, consumerId)));
+        }
+
+        return item;
+    }
+
+    /**
+     * 确认（处理完成，移出处理中列表；有同样的消息时，确认最早推出的那个）
+     *
+     * @return 是否还在处理中（false 表示已超时被放回队列）
+     */
+    public boolean ack(String item) {
+        Long rst = (Long) client.openAndGet(s -> ACK_SCRIPT.eval(s.jedis(),
+                Arrays.asList(processingKey, deadlineKey),
+                Collections.singletonList(item)));
+
+        return rst != null && rst > 0;
+    }
+
+    /**
+     * 否认（处理失败，放回队列以便重新推出）
+     */
+    public boolean nack(String item) {
+        Long rst = (Long) client.openAndGet(s -> NACK_SCRIPT.eval(s.jedis(),
+                Arrays.asList(processingKey, deadlineKey, queueName),
+                Collections.singletonList(item)));
+
+        return rst != null && rst > 0;
+    }
+
+    /**
+     * 不支持（会绕过处理中列表；用 take 与 ack）
+     */
+    @Override
+    public String pop() {
+        throw unsupported();
+    }
+
+    /**
+     * 不支持（会绕过处理中列表；用 take 与 ack）
+     */
+    @Override
+    public List<String> pop(int count) {
+        throw unsupported();
+    }
+
+    /**
+     * 不支持（会绕过处理中列表；用 take 与 ack，或 listen）
+     */
+    @Override
+    public void popAll(Consumer<String> consumer) {
+        throw unsupported();
+    }
+
+    /**
+     * 不支持（会绕过处理中列表；用 take 与 ack，或 listen）
+     */
+    @Override
+    public void popAll(int batchSize, Consumer<String> consumer) {
+        throw unsupported();
+    }
+
+    /**
+     * 不支持（会绕过处理中列表；用 take 与 ack，或 listen）
+     */
+    @Override
+    public long drain(int batchSize, Consumer<List<String>> consumer) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("reliable queue must be consumed by take and ack");
+    }
+
+    /**
+     * 阻塞推出（监听用）
+     */
+    @Override
+    protected String fetch(int timeoutSeconds) {
+        return take(timeoutSeconds);
+    }
+
+    /**
+     * 处理完成（监听用；成功确认，失败否认）
+     */
+    @Override
+    protected void complete(String item, boolean succeeded) {
+        if (succeeded) {
+            ack(item);
+        } else {
+            nack(item);
+        }
+    }
+
+    /**
+     * 延长可见超时（处理时间较长时，定时调用；有同样的消息时，延长最早到期的那个）
+     *
+     * @return 是否还在处理中
+     */
+    public boolean touch(String item) {
+        long deadline = System.currentTimeMillis() + visibilityMillis;
+
+        Long rst = (Long) client.openAndGet(s -> TOUCH_SCRIPT.eval(s.jedis(),
+                Arrays.asList(deadlineKey, consumersKey),
+                Arrays.asList(String.valueOf(deadline), item, consumerId)));
+
+        return rst != null && rst > 0;
+    }
+
+    /**
+     * 处理中的数量
+     */
+    public long processingSize() {
+        return client.openAndGet(s -> s.jedis().llen(processingKey));
+    }
+
+    /**
+     * 回收（把所有消费者中超时未确认的放回队列；会定时自动执行）
+     *
+     * @return 放回的数量
+     */
+    public int reap() {
+        long now = System.currentTimeMillis();
+        String tag = hashTag(queueName);
+
+        List<String> consumers = client.openAndGet(s -> s.jedis().zrange(consumersKey, 0, -1));
+        if (consumers.isEmpty()) {
+            return 0;
+        }
+
+        List<String> args = new ArrayList<>(2);
+        args.add(String.valueOf(now));
+        args.add(null);
+
+        int count = 0;
+        for (String consumer : consumers) {
+            args.set(1, consumer);
+
+            Long rst = (Long) client.openAndGet(s -> REAP_SCRIPT.eval(s.jedis(),
+                    Arrays.asList(tag + ":processing:" + consumer, tag + ":deadline:" + consumer, queueName, consumersKey),
+                    args));
+
+            if (rst != null) {
+                count += rst.intValue();
+            }
+        }
+
+        return count;
+    }
+
+    private void reapQuietly() {
+        try {
+            reap();
+        } catch (Throwable e) {
+            //下个周期再试
+        }
+    }
+
+    /**
+     * 哈希标签（队列名已带标签时，沿用；否则以队列名为标签，与队列键同槽）
+     */
+    private static String hashTag(String queueName) {
+        int start = queueName.indexOf('{');
+        if (start >= 0) {
+            int end = queueName.indexOf('}', start + 1);
+            if (end > start + 1) {
+                return queueName;
+            }
+        }
+
+        return "{" + queueName + "}";
+    }
+}
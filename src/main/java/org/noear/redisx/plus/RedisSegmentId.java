@@ -0,0 +1,106 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis 分段 Id 生成器（INCRBY 预留一段，本地无锁发放；用到一定比例时后台预取下一段）
+ * <p>
+ * 与 RedisId 可共用同一个键。单个进程内递增，多进程之间只保证唯一；进程重启时，未用完的号段会被跳过
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisSegmentId {
+    private final RedisClient client;
+    private final String idName;
+    private final long blockSize;
+    private final long prefetchOffset;
+
+    private volatile Segment current;
+    private CompletableFuture<Segment> next; //由 this 同步
+
+    /**
+     * @param blockSize     每段数量
+     * @param prefetchRatio 用到多少比例时，预取下一段（0~1）
+     */
+    public RedisSegmentId(RedisClient client, String idName, long blockSize, double prefetchRatio) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be greater than 0");
+        }
+
+        this.client = client;
+        this.idName = idName;
+        this.blockSize = blockSize;
+        this.prefetchOffset = Math.min(blockSize - 1, Math.max(0, (long) (blockSize * prefetchRatio)));
+    }
+
+    /**
+     * 生成（一般为本地原子递增，不访问 redis）
+     */
+    public long generate() {
+        while (true) {
+            Segment seg = current;
+
+            if (seg != null) {
+                long id = seg.cursor.incrementAndGet();
+
+                if (id <= seg.max) {
+                    if (id == seg.prefetchAt) {
+                        prefetch();
+                    }
+                    return id;
+                }
+            }
+
+            switchSegment(seg);
+        }
+    }
+
+    private synchronized void prefetch() {
+        if (next == null) {
+            next = CompletableFuture.supplyAsync(this::fetch, client.worker());
+        }
+    }
+
+    private synchronized void switchSegment(Segment used) {
+        if (current != used) {
+            return; //其它线程已切换
+        }
+
+        Segment seg = null;
+        if (next != null) {
+            try {
+                seg = next.join();
+            } catch (RuntimeException e) {
+                //预取失败，同步再取
+            }
+            next = null;
+        }
+
+        if (seg == null) {
+            seg = fetch();
+        }
+
+        current = seg;
+    }
+
+    private Segment fetch() {
+        long max = client.openAndGet(s -> s.key(idName).incr(blockSize));
+        return new Segment(max - blockSize + 1, max, prefetchOffset);
+    }
+
+    private static class Segment {
+        final long max;
+        final long prefetchAt;
+        final AtomicLong cursor;
+
+        Segment(long min, long max, long prefetchOffset) {
+            this.max = max;
+            this.prefetchAt = min + prefetchOffset;
+            this.cursor = new AtomicLong(min - 1);
+        }
+    }
+}
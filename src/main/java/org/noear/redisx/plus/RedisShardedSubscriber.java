@@ -0,0 +1,484 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.KeyedSerialExecutor;
+import org.noear.redisx.utils.ThreadUtil;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.ConnectionPool;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.JedisShardedPubSub;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.resps.ClusterShardInfo;
+import redis.clients.jedis.resps.ClusterShardNodeInfo;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Redis 分片订阅管理器（SSUBSCRIBE；每个分片一个订阅连接，频道订阅到其所在的分片）
+ * <p>
+ * 槽迁移时服务端会退订受影响的频道，此时重新获取集群拓扑，并把频道改订到新的分片。需要 redis 7.0+
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisShardedSubscriber implements AutoCloseable {
+    private static final int SLOT_COUNT = 16384;
+    private static final long RETRY_MILLIS = 1000;
+    private static final int STRIPES = 64;
+    private static final int MAX_PENDING = 10_000; //每个串行队列排队的最大消息数（满时丢弃，交给异常回调）
+    private static final String STANDALONE = "standalone";
+
+    private final RedisClient client;
+    private final ExecutorService ownedExecutor;
+    private final KeyedSerialExecutor dispatcher;
+
+    private final Map<String, List<BiConsumer<String, String>>> handlers = new ConcurrentHashMap<>();
+    private final Map<String, Shard> assigned = new HashMap<>(); //由 this 同步
+    private final Map<String, Shard> shards = new HashMap<>(); //由 this 同步
+    private final AtomicBoolean rerouteScheduled = new AtomicBoolean();
+
+    private Topology topology; //由 this 同步
+    private volatile boolean closed;
+    private volatile BiConsumer<String, Throwable> errorHandler;
+
+    public RedisShardedSubscriber(RedisClient client) {
+        this.client = client;
+        this.ownedExecutor = ThreadUtil.newVirtualOrFixed("redisx-ssubscriber-", Runtime.getRuntime().availableProcessors());
+        this.dispatcher = new KeyedSerialExecutor(ownedExecutor, STRIPES, MAX_PENDING, this::onError);
+    }
+
+    /**
+     * 订阅分片频道
+     *
+     * @param handler 处理器（频道，消息）
+     * @return 订阅（关闭即取消）
+     */
+    public synchronized RedisSubscriber.Subscription subscribe(BiConsumer<String, String> handler, String... channels) {
+        if (closed) {
+            throw new IllegalStateException("RedisShardedSubscriber is closed");
+        }
+
+        if (topology == null) {
+            topology = Topology.load(client.jedis());
+        }
+
+        for (String channel : channels) {
+            boolean first = handlers.containsKey(channel) == false;
+            handlers.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(handler);
+
+            if (first) {
+                Shard shard = shardOf(channel);
+                assigned.put(channel, shard);
+                shard.ssubscribe(channel);
+            }
+        }
+
+        return new RedisSubscriber.Subscription(channels, () -> unsubscribe(handler, channels));
+    }
+
+    /**
+     * 各分片的订阅连接数
+     */
+    public synchronized int shardCount() {
+        return shards.size();
+    }
+
+    private synchronized void unsubscribe(BiConsumer<String, String> handler, String[] channels) {
+        for (String channel : channels) {
+            List<BiConsumer<String, String>> list = handlers.get(channel);
+            if (list == null || list.remove(handler) == false || list.size() > 0) {
+                continue;
+            }
+
+            handlers.remove(channel);
+
+            Shard shard = assigned.remove(channel);
+            if (shard != null) {
+                shard.sunsubscribe(channel);
+            }
+        }
+    }
+
+    private Shard shardOf(String channel) {
+        String shardId = topology.shardOf(JedisClusterCRC16.getSlot(channel));
+        return shards.computeIfAbsent(shardId, k -> new Shard(k, topology));
+    }
+
+    /**
+     * 重新路由（重新获取拓扑，把不在所属分片上的频道改订过去）
+     */
+    private void scheduleReroute() {
+        if (closed == false && rerouteScheduled.compareAndSet(false, true)) {
+            try {
+                client.scheduleOnWorker(() -> {
+                    rerouteScheduled.set(false);
+                    try {
+                        reroute();
+                    } catch (Throwable e) {
+                        scheduleReroute(); //拓扑获取失败，稍后再试
+                    }
+                }, RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                rerouteScheduled.set(false);
+            }
+        }
+    }
+
+    private synchronized void reroute() {
+        if (closed) {
+            return;
+        }
+
+        topology = Topology.load(client.jedis());
+
+        for (String channel : handlers.keySet()) {
+            Shard target = shardOf(channel);
+            Shard current = assigned.put(channel, target);
+
+            if (current != target) {
+                if (current != null) {
+                    current.sunsubscribe(channel);
+                }
+            }
+
+            //被服务端退订的，也需要重新订阅（重复订阅无副作用）
+            target.ssubscribe(channel);
+        }
+
+        //已不存在的分片（如节点下线），关闭其连接
+        shards.values().removeIf(shard -> {
+            if (topology.contains(shard.id) == false) {
+                shard.stop();
+                return true;
+            } else {
+                return false;
+            }
+        });
+    }
+
+    private synchronized boolean isAssigned(String channel, Shard shard) {
+        return assigned.get(channel) == shard;
+    }
+
+    private synchronized void refresh(Shard shard) {
+        if (topology.contains(shard.id)) {
+            shard.slot = topology.slotOf(shard.id);
+            shard.holdChannel = holdChannel(topology, shard.id);
+        }
+    }
+
+    private synchronized List<String> channelsOf(Shard shard) {
+        List<String> list = new ArrayList<>();
+        for (Map.Entry<String, Shard> kv : assigned.entrySet()) {
+            if (kv.getValue() == shard) {
+                list.add(kv.getKey());
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 设置异常回调（处理器异常，或消息积压超过上限被丢弃时；参数为频道，异常）
+     */
+    public void errorHandler(BiConsumer<String, Throwable> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    private void onError(String channel, Throwable error) {
+        BiConsumer<String, Throwable> tmp = errorHandler;
+        if (tmp != null) {
+            tmp.accept(channel, error);
+        }
+    }
+
+    private void dispatch(String channel, String message) {
+        List<BiConsumer<String, String>> list = handlers.get(channel);
+        if (list == null) {
+            return;
+        }
+
+        for (BiConsumer<String, String> handler : list) {
+            dispatcher.execute(channel, () -> handler.accept(channel, message));
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+
+            for (Shard shard : shards.values()) {
+                shard.stop();
+            }
+            shards.clear();
+            assigned.clear();
+        }
+
+        ownedExecutor.shutdown();
+    }
+
+    /**
+     * 分片（一个订阅连接，一个读线程）
+     */
+    private class Shard {
+        final String id;
+        volatile String holdChannel; //占位频道（落在本分片上，保证连接上至少有一个订阅）
+        volatile int slot; //本分片的一个槽（用于获取连接）
+
+        private JedisShardedPubSub current; //由 Shard 同步
+        private boolean live; //由 Shard 同步
+        private volatile boolean stopped;
+
+        Shard(String id, Topology topology) {
+            this.id = id;
+            this.slot = topology.slotOf(id);
+            this.holdChannel = RedisShardedSubscriber.holdChannel(topology, id);
+
+            Thread thread = ThreadUtil.daemonFactory("redisx-ssubscriber-loop-").newThread(this::loop);
+            thread.start();
+        }
+
+        synchronized void ssubscribe(String channel) {
+            if (live) {
+                try {
+                    current.ssubscribe(channel);
+                } catch (RuntimeException e) {
+                    //连接已断开，重连后补订
+                }
+            }
+        }
+
+        synchronized void sunsubscribe(String channel) {
+            if (live) {
+                try {
+                    current.sunsubscribe(channel);
+                } catch (RuntimeException e) {
+                    //连接已断开
+                }
+            }
+        }
+
+        synchronized void stop() {
+            stopped = true;
+
+            if (live) {
+                try {
+                    current.sunsubscribe();
+                } catch (RuntimeException e) {
+                    //连接已断开
+                }
+            }
+        }
+
+        private void loop() {
+            while (stopped == false && closed == false) {
+                JedisShardedPubSub pubSub = new ShardPubSub(this);
+
+                synchronized (this) {
+                    current = pubSub;
+                    live = false;
+                }
+
+                //槽迁移后，占位频道可能已不在本分片上
+                refresh(this);
+
+                try (Connection connection = connect()) {
+                    pubSub.proceed(connection, holdChannel);
+                } catch (Throwable e) {
+                    //连接异常（或分片已变化），重新路由后重连
+                    scheduleReroute();
+                }
+
+                synchronized (this) {
+                    live = false;
+                    current = null;
+                }
+
+                if (stopped == false && closed == false) {
+                    try {
+                        Thread.sleep(RETRY_MILLIS);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 就绪回调：补订本分片的所有频道（首次订阅与重连后都会执行）
+         */
+        void onReady(JedisShardedPubSub pubSub) {
+            synchronized (this) {
+                if (pubSub != current || live) {
+                    return;
+                }
+
+                live = true;
+
+                if (stopped || closed) {
+                    pubSub.sunsubscribe();
+                    return;
+                }
+            }
+
+            //先置为就绪再取频道（不持有分片锁，避免与重新路由死锁）；期间新增的频道会直接订阅
+            List<String> channels = channelsOf(this);
+
+            synchronized (this) {
+                if (pubSub == current && channels.size() > 0) {
+                    pubSub.ssubscribe(channels.toArray(new String[0]));
+                }
+            }
+        }
+
+        private Connection connect() {
+            UnifiedJedis jedis = client.jedis();
+
+            if (jedis instanceof JedisCluster) {
+                JedisCluster cluster = (JedisCluster) jedis;
+                ConnectionPool pool = cluster.getClusterNodes().get(id);
+                return pool != null ? pool.getResource() : cluster.getConnectionFromSlot(slot);
+            } else if (jedis instanceof JedisPooled) {
+                return ((JedisPooled) jedis).getPool().getResource();
+            } else {
+                throw new UnsupportedOperationException("Sharded pub/sub is not supported: " + jedis.getClass().getName());
+            }
+        }
+    }
+
+    private class ShardPubSub extends JedisShardedPubSub {
+        private final Shard shard;
+
+        ShardPubSub(Shard shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public void onSSubscribe(String channel, int subscribedChannels) {
+            if (shard.holdChannel.equals(channel)) {
+                shard.onReady(this);
+            }
+        }
+
+        @Override
+        public void onSUnsubscribe(String channel, int subscribedChannels) {
+            //不是自己退订的（即槽已迁移），重新路由
+            if (shard.holdChannel.equals(channel) || isAssigned(channel, shard)) {
+                if (shard.stopped == false && closed == false) {
+                    scheduleReroute();
+                }
+            }
+        }
+
+        @Override
+        public void onSMessage(String channel, String message) {
+            dispatch(channel, message);
+        }
+    }
+
+    /**
+     * 选取落在分片上的占位频道
+     */
+    private static String holdChannel(Topology topology, String shardId) {
+        String prefix = "redisx:ssubscriber:hold:";
+
+        for (int i = 0; ; i++) {
+            String channel = prefix + i;
+            if (shardId.equals(topology.shardOf(JedisClusterCRC16.getSlot(channel)))) {
+                return channel;
+            }
+        }
+    }
+
+    /**
+     * 集群拓扑（槽所属的分片；分片以主节点的 host:port 标识）
+     */
+    private static class Topology {
+        final String[] slotShards = new String[SLOT_COUNT];
+
+        String shardOf(int slot) {
+            String shardId = slotShards[slot];
+            if (shardId == null) {
+                throw new IllegalStateException("The slot is not covered by any shard: " + slot);
+            }
+            return shardId;
+        }
+
+        int slotOf(String shardId) {
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                if (shardId.equals(slotShards[i])) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        boolean contains(String shardId) {
+            for (String id : slotShards) {
+                if (shardId.equals(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        static Topology load(UnifiedJedis jedis) {
+            Topology topology = new Topology();
+
+            if (jedis instanceof JedisCluster) {
+                List<ClusterShardInfo> shardInfos;
+                try (Connection connection = ((JedisCluster) jedis).getConnectionFromSlot(0)) {
+                    shardInfos = new Jedis(connection).clusterShards();
+                }
+
+                for (ClusterShardInfo shardInfo : shardInfos) {
+                    String shardId = primaryOf(shardInfo);
+                    if (shardId == null) {
+                        continue;
+                    }
+
+                    //slots 为 [起, 止, 起, 止...]
+                    List<Long> bounds = new ArrayList<>();
+                    for (List<Long> range : shardInfo.getSlots()) {
+                        bounds.addAll(range);
+                    }
+
+                    for (int i = 0; i + 1 < bounds.size(); i += 2) {
+                        for (long slot = bounds.get(i); slot <= bounds.get(i + 1); slot++) {
+                            topology.slotShards[(int) slot] = shardId;
+                        }
+                    }
+                }
+            } else {
+                for (int i = 0; i < SLOT_COUNT; i++) {
+                    topology.slotShards[i] = STANDALONE;
+                }
+            }
+
+            return topology;
+        }
+
+        private static String primaryOf(ClusterShardInfo shardInfo) {
+            for (ClusterShardNodeInfo node : shardInfo.getNodes()) {
+                if ("master".equals(node.getRole()) && "online".equals(node.getHealth())) {
+                    String host = node.getIp() != null ? node.getIp() : node.getEndpoint();
+                    return host + ":" + node.getPort();
+                }
+            }
+
+            return null;
+        }
+    }
+}
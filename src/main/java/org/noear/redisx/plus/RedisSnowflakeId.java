@@ -0,0 +1,219 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.LuaScript;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis 雪花 Id 生成器（本地生成按时间有序的 64 位 Id；redis 只用于租用工作节点号）
+ * <p>
+ * 结构：41 位毫秒时间（自 2020-01-01 起）+ 10 位工作节点号 + 12 位序号。
+ * 工作节点号通过 SET NX PX 租用，并定时续租；进程崩溃后，租约过期即可被回收
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisSnowflakeId implements AutoCloseable {
+    private static final long EPOCH = 1577836800000L; //2020-01-01 00:00:00 UTC
+    private static final int WORKER_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_MAX = (1 << WORKER_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * 允许的时钟回拨（毫秒）；在此之内沿用逻辑时钟，超过则报错
+     */
+    private static final long BACKWARD_MAX_MILLIS = 1_000;
+    /**
+     * 节点间允许的时钟偏差（毫秒）
+     */
+    private static final long CLOCK_SKEW_MILLIS = 2_000;
+    /**
+     * 关闭后工作节点号的保留时间（毫秒）：覆盖借用的未来时间与时钟偏差，之后才可被别人租用
+     */
+    private static final long RELEASE_HOLD_MILLIS = BACKWARD_MAX_MILLIS + CLOCK_SKEW_MILLIS;
+
+    //续租：自己持有才续
+    private static final LuaScript RENEW_SCRIPT = new LuaScript(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return 0");
+
+    //释放：自己持有才缩短租期（不立即删除，避免别人马上租到而生成重复 Id）
+    private static final LuaScript RELEASE_SCRIPT = new LuaScript(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return 0");
+
+    private final RedisClient client;
+    private final String idName;
+    private final long leaseMillis;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 状态：(逻辑时间 << 12) | 序号
+     */
+    private final AtomicLong state = new AtomicLong();
+    private volatile long workerId = -1;
+    private volatile long leaseUntil;
+    private final ScheduledFuture<?> heartbeat;
+    private volatile boolean closed;
+
+    /**
+     * @param leaseSeconds 工作节点号租期（每 1/3 租期续租一次）
+     */
+    public RedisSnowflakeId(RedisClient client, String idName, int leaseSeconds) {
+        this.client = client;
+        this.idName = idName;
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(Math.max(3, leaseSeconds));
+
+        lease();
+
+        long period = leaseMillis / 3;
+        this.heartbeat = client.leaseScheduler().scheduleWithFixedDelay(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 当前租用的工作节点号
+     */
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 生成（本地 CAS，不访问 redis）
+     */
+    public long generate() {
+        long worker = workerId;
+        if (worker < 0 || System.currentTimeMillis() > leaseUntil) {
+            worker = renewLapsed();
+        }
+
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH;
+            long prev = state.get();
+            long last = prev >>> SEQUENCE_BITS;
+            long next;
+
+            if (now > last) {
+                next = now << SEQUENCE_BITS;
+            } else if (last - now > BACKWARD_MAX_MILLIS) {
+                throw new IllegalStateException("Clock moved backwards by " + (last - now) + "ms, refusing to generate id");
+            } else if ((prev & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = prev + 1;
+            } else if (last + 1 - now <= BACKWARD_MAX_MILLIS) {
+                next = (last + 1) << SEQUENCE_BITS; //本毫秒序号用完，借用下一毫秒
+            } else {
+                Thread.yield(); //借用已到上限，等时钟追上
+                continue;
+            }
+
+            if (state.compareAndSet(prev, next)) {
+                return ((next >>> SEQUENCE_BITS) << (WORKER_BITS + SEQUENCE_BITS))
+                        | (worker << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 从 Id 中解析出时间戳（毫秒）
+     */
+    public static long getTimestamp(long id) {
+        return (id >>> (WORKER_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /**
+     * 租用工作节点号（从随机位置开始，依次尝试）
+     */
+    private synchronized void lease() {
+        int start = ThreadLocalRandom.current().nextInt(WORKER_MAX + 1);
+
+        for (int i = 0; i <= WORKER_MAX; i++) {
+            int worker = (start + i) & WORKER_MAX;
+            long time = System.currentTimeMillis();
+
+            boolean ok = client.openAndGet(s -> s.key(workerKey(worker))
+                    .expire(leaseMillis, TimeUnit.MILLISECONDS)
+                    .lock(instanceId));
+
+            if (ok) {
+                workerId = worker;
+                leaseUntil = time + leaseMillis;
+                return;
+            }
+        }
+
+        throw new IllegalStateException("RedisSnowflakeId has no free worker id: " + idName);
+    }
+
+    /**
+     * 本地租约已过期（续租被耽误或失败），同步续租一次
+     */
+    private synchronized long renewLapsed() {
+        if (workerId < 0 || System.currentTimeMillis() > leaseUntil) {
+            if (closed) {
+                throw new IllegalStateException("RedisSnowflakeId is closed: " + idName);
+            }
+
+            heartbeat();
+        }
+
+        long worker = workerId;
+        if (worker < 0 || System.currentTimeMillis() > leaseUntil) {
+            throw new IllegalStateException("RedisSnowflakeId worker lease is lost: " + idName);
+        }
+
+        return worker;
+    }
+
+    private synchronized void heartbeat() {
+        long worker = workerId;
+        long time = System.currentTimeMillis();
+
+        try {
+            Long rst = (Long) client.openAndGet(s -> RENEW_SCRIPT.eval(s.jedis(),
+                    Collections.singletonList(workerKey(worker)),
+                    Arrays.asList(instanceId, String.valueOf(leaseMillis))));
+
+            if (rst != null && rst > 0) {
+                leaseUntil = time + leaseMillis;
+            } else {
+                //租约已丢失（如长时间断连后被别人租走），换一个
+                workerId = -1;
+                lease();
+            }
+        } catch (Throwable e) {
+            //网络抖动等，下个周期再试（租约到期前仍可生成）
+        }
+    }
+
+    private String workerKey(long worker) {
+        return idName + ":worker:" + worker;
+    }
+
+    /**
+     * 关闭（停止续租，工作节点号保留一小段时间后才可被别人租用）
+     */
+    @Override
+    public void close() {
+        closed = true;
+        heartbeat.cancel(false);
+
+        long worker = workerId;
+        workerId = -1;
+
+        if (worker >= 0) {
+            client.open(s -> RELEASE_SCRIPT.eval(s.jedis(),
+                    Collections.singletonList(workerKey(worker)),
+                    Arrays.asList(instanceId, String.valueOf(RELEASE_HOLD_MILLIS))));
+        }
+    }
+}
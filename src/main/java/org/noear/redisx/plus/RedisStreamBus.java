@@ -0,0 +1,96 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.params.XAddParams;
+
+import java.util.Collections;
+import java.util.function.BiConsumer;
+
+/**
+ * Redis 流总线（基于 Streams；消息持久化，消费组内多个实例分摊消费，处理成功才确认）
+ * <p>
+ * 与 RedisBus（PUBLISH/SUBSCRIBE）相比：订阅者断连或重启期间的消息不会丢失；需要 redis 6.2+（XAUTOCLAIM）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisStreamBus {
+    static final String FIELD_MESSAGE = "message";
+
+    private final RedisClient client;
+    private final long maxLen;
+
+    /**
+     * @param maxLen 每个主题保留的最大消息数（近似裁剪）
+     */
+    public RedisStreamBus(RedisClient client, long maxLen) {
+        this.client = client;
+        this.maxLen = maxLen;
+    }
+
+    /**
+     * 发布（XADD，并按 maxLen 近似裁剪）
+     *
+     * @return 消息Id
+     */
+    public String publish(String topic, String message) {
+        StreamEntryID id = client.openAndGet(s -> s.jedis().xadd(topic,
+                XAddParams.xAddParams().maxLen(maxLen).approximateTrimming(),
+                Collections.singletonMap(FIELD_MESSAGE, message)));
+
+        return id.toString();
+    }
+
+    /**
+     * 订阅（每批 100 条，阻塞等待 1 秒；处理中超过 60 秒未确认的，会被组内其它消费者认领；未关闭的，在关闭客户端时关闭）
+     *
+     * @param group    消费组（同组的多个消费者分摊消息）
+     * @param consumer 消费者（同一个消费者重启后，会先处理自己未确认的消息）
+     */
+    public RedisStreamSubscription subscribe(String topic, String group, String consumer, BiConsumer<String, String> subscriber) {
+        return subscribe(topic, group, consumer, subscriber, 100, 1000, 60_000);
+    }
+
+    /**
+     * 订阅
+     *
+     * @param group           消费组（同组的多个消费者分摊消息）
+     * @param consumer        消费者（同一个消费者重启后，会先处理自己未确认的消息）
+     * @param batchSize       每批读取数量（COUNT）
+     * @param blockMillis     没有消息时阻塞等待的毫秒数（BLOCK；要小于连接的读超时）
+     * @param claimIdleMillis 组内消息超过此毫秒数未确认时，认领过来重新处理（XAUTOCLAIM）
+     */
+    public RedisStreamSubscription subscribe(String topic, String group, String consumer, BiConsumer<String, String> subscriber,
+                                             int batchSize, int blockMillis, long claimIdleMillis) {
+        return subscribe(topic, group, consumer, subscriber, batchSize, blockMillis, claimIdleMillis, 0, null, null);
+    }
+
+    /**
+     * 订阅（带死信与异常回调）
+     *
+     * @param maxDeliveries   最大投递次数（认领时按 XPENDING 的投递次数判断，超过的转入死信流并确认；小于等于 0 时不限）
+     * @param deadLetterTopic 死信流（为 null 时，用 topic + ":dead"）
+     * @param errorHandler    处理异常时的回调（消息，异常；可为 null）
+     */
+    public RedisStreamSubscription subscribe(String topic, String group, String consumer, BiConsumer<String, String> subscriber,
+                                             int batchSize, int blockMillis, long claimIdleMillis,
+                                             int maxDeliveries, String deadLetterTopic, BiConsumer<String, Throwable> errorHandler) {
+        return new RedisStreamSubscription(client, topic, group, consumer, subscriber, batchSize, blockMillis, claimIdleMillis,
+                maxDeliveries, deadLetterTopic, errorHandler);
+    }
+
+    /**
+     * 消息数量
+     */
+    public long size(String topic) {
+        return client.openAndGet(s -> s.jedis().xlen(topic));
+    }
+
+    /**
+     * 消费组内未确认的消息数量
+     */
+    public long pending(String topic, String group) {
+        return client.openAndGet(s -> s.jedis().xpending(topic, group).getTotal());
+    }
+}
@@ -0,0 +1,279 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.ThreadUtil;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XAddParams;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XPendingParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.resps.StreamPendingEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Redis 流订阅（专用线程 XREADGROUP 阻塞读取，按序处理，成功后 XACK；定时 XAUTOCLAIM 认领组内卡住的消息）
+ * <p>
+ * 处理失败的消息不确认，超过认领时间后再次处理（处理要幂等）；投递次数超过上限的，转入死信流并确认。
+ * 未关闭的，在关闭客户端时关闭
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisStreamSubscription implements AutoCloseable {
+    private static final long RETRY_MILLIS = 1000;
+
+    //死信流的字段
+    public static final String DEAD_FIELD_ID = "id";
+    public static final String DEAD_FIELD_GROUP = "group";
+    public static final String DEAD_FIELD_DELIVERIES = "deliveries";
+
+    private final RedisClient client;
+    private final String topic;
+    private final String group;
+    private final String consumer;
+    private final BiConsumer<String, String> subscriber;
+    private final int batchSize;
+    private final int blockMillis;
+    private final long claimIdleMillis;
+    private final int maxDeliveries;
+    private final String deadLetterTopic;
+    private final BiConsumer<String, Throwable> errorHandler;
+
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long nextClaimTime;
+
+    /**
+     * @param maxDeliveries   最大投递次数（超过时转入死信流；小于等于 0 时不限）
+     * @param deadLetterTopic 死信流（为 null 时，用 topic + ":dead"；不裁剪）
+     * @param errorHandler    处理异常时的回调（消息，异常；可为 null）
+     */
+    public RedisStreamSubscription(RedisClient client, String topic, String group, String consumer, BiConsumer<String, String> subscriber,
+                                   int batchSize, int blockMillis, long claimIdleMillis,
+                                   int maxDeliveries, String deadLetterTopic, BiConsumer<String, Throwable> errorHandler) {
+        this.client = client;
+        this.topic = topic;
+        this.group = group;
+        this.consumer = consumer;
+        this.subscriber = subscriber;
+        this.batchSize = Math.max(1, batchSize);
+        this.blockMillis = Math.max(1, blockMillis);
+        this.claimIdleMillis = claimIdleMillis;
+        this.maxDeliveries = maxDeliveries;
+        this.deadLetterTopic = (deadLetterTopic == null ? topic + ":dead" : deadLetterTopic);
+        this.errorHandler = errorHandler;
+
+        createGroup();
+
+        this.worker = ThreadUtil.daemonFactory("redisx-stream-" + topic + "-").newThread(this::readLoop);
+        this.worker.start();
+
+        client.register(this);
+    }
+
+    /**
+     * 创建消费组（已存在时忽略；新建的组从最新消息开始）
+     */
+    private void createGroup() {
+        try {
+            client.open(s -> s.jedis().xgroupCreate(topic, group, StreamEntryID.XGROUP_LAST_ENTRY, true));
+        } catch (JedisDataException e) {
+            if (e.getMessage() == null || e.getMessage().contains("BUSYGROUP") == false) {
+                throw e;
+            }
+        }
+    }
+
+    private void readLoop() {
+        //先处理自己未确认的（上次运行遗留），读完后再读新消息
+        StreamEntryID history = new StreamEntryID();
+
+        while (running) {
+            try {
+                if (claimIdleMillis > 0 && System.currentTimeMillis() >= nextClaimTime) {
+                    claim();
+                    nextClaimTime = System.currentTimeMillis() + Math.max(RETRY_MILLIS, claimIdleMillis / 2);
+                }
+
+                List<StreamEntry> entries = read(history != null ? history : StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY);
+
+                if (history != null) {
+                    if (entries.isEmpty()) {
+                        history = null;
+                        continue;
+                    }
+
+                    history = entries.get(entries.size() - 1).getID();
+                }
+
+                handle(entries);
+            } catch (Throwable e) {
+                if (running == false) {
+                    break;
+                }
+
+                //连接异常或流被删除等，稍后重建消费组再试
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                    createGroup();
+                } catch (InterruptedException e2) {
+                    break;
+                } catch (Throwable e2) {
+                    //下次再试
+                }
+            }
+        }
+    }
+
+    private List<StreamEntry> read(StreamEntryID from) {
+        XReadGroupParams params = XReadGroupParams.xReadGroupParams().count(batchSize);
+        if (from == StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY) {
+            params.block(blockMillis);
+        }
+
+        List<Map.Entry<String, List<StreamEntry>>> rst = client.openAndGet(s -> s.jedis().xreadGroup(group, consumer,
+                params, Collections.singletonMap(topic, from)));
+
+        if (rst == null || rst.isEmpty() || rst.get(0).getValue() == null) {
+            return Collections.emptyList();
+        }
+
+        return rst.get(0).getValue();
+    }
+
+    /**
+     * 认领组内超时未确认的消息（包括已下线的消费者遗留的）
+     */
+    private void claim() {
+        StreamEntryID cursor = new StreamEntryID();
+
+        do {
+            StreamEntryID start = cursor;
+            Map.Entry<StreamEntryID, List<StreamEntry>> rst = client.openAndGet(s -> s.jedis().xautoclaim(topic, group, consumer,
+                    claimIdleMillis, start, XAutoClaimParams.xAutoClaimParams().count(batchSize)));
+
+            if (rst == null) {
+                break;
+            }
+
+            handle(deadLetter(rst.getValue()));
+            cursor = rst.getKey();
+        } while (running && cursor != null && (cursor.getTime() != 0 || cursor.getSequence() != 0));
+    }
+
+    /**
+     * 投递次数超过上限的，转入死信流并确认（返回其余的）
+     */
+    private List<StreamEntry> deadLetter(List<StreamEntry> entries) {
+        if (maxDeliveries <= 0 || entries == null || entries.isEmpty()) {
+            return entries;
+        }
+
+        StreamEntryID first = entries.get(0).getID();
+        StreamEntryID last = entries.get(entries.size() - 1).getID();
+
+        List<StreamPendingEntry> pendings = client.openAndGet(s -> s.jedis().xpending(topic, group,
+                XPendingParams.xPendingParams(first, last, entries.size()).consumer(consumer)));
+
+        Map<StreamEntryID, Long> deliveries = new HashMap<>();
+        for (StreamPendingEntry pending : pendings) {
+            deliveries.put(pending.getID(), pending.getDeliveredTimes());
+        }
+
+        List<StreamEntry> rest = new ArrayList<>(entries.size());
+        List<StreamEntryID> acks = new ArrayList<>();
+
+        for (StreamEntry entry : entries) {
+            Long times = deliveries.get(entry.getID());
+
+            if (times == null || times <= maxDeliveries || entry.getFields() == null) {
+                rest.add(entry);
+                continue;
+            }
+
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put(RedisStreamBus.FIELD_MESSAGE, entry.getFields().get(RedisStreamBus.FIELD_MESSAGE));
+            fields.put(DEAD_FIELD_ID, entry.getID().toString());
+            fields.put(DEAD_FIELD_GROUP, group);
+            fields.put(DEAD_FIELD_DELIVERIES, String.valueOf(times));
+
+            client.open(s -> s.jedis().xadd(deadLetterTopic, XAddParams.xAddParams(), fields));
+            acks.add(entry.getID());
+        }
+
+        if (acks.size() > 0) {
+            client.open(s -> s.jedis().xack(topic, group, acks.toArray(new StreamEntryID[0])));
+        }
+
+        return rest;
+    }
+
+    private void handle(List<StreamEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+
+        List<StreamEntryID> acks = new ArrayList<>(entries.size());
+
+        for (StreamEntry entry : entries) {
+            if (entry == null || entry.getFields() == null) {
+                //已被裁剪掉的消息，直接确认
+                if (entry != null) {
+                    acks.add(entry.getID());
+                }
+                continue;
+            }
+
+            String message = entry.getFields().get(RedisStreamBus.FIELD_MESSAGE);
+
+            try {
+                subscriber.accept(topic, message);
+                acks.add(entry.getID());
+            } catch (Throwable e) {
+                //不确认，超过认领时间后再次处理
+                onError(message, e);
+            }
+        }
+
+        if (acks.size() > 0) {
+            client.open(s -> s.jedis().xack(topic, group, acks.toArray(new StreamEntryID[0])));
+        }
+    }
+
+    private void onError(String message, Throwable error) {
+        if (errorHandler != null) {
+            try {
+                errorHandler.accept(message, error);
+            } catch (Throwable e) {
+                //回调自身的异常，忽略
+            }
+        }
+    }
+
+    /**
+     * 死信流
+     */
+    public String deadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    /**
+     * 关闭（停止读取，并等待当前批次处理完成）
+     */
+    @Override
+    public void close() throws InterruptedException {
+        client.unregister(this);
+        running = false;
+        worker.join(blockMillis + TimeUnit.SECONDS.toMillis(30));
+    }
+}
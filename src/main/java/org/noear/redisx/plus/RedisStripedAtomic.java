@@ -0,0 +1,204 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.RedisPipelineSession;
+import org.noear.redisx.utils.LuaScript;
+import org.noear.redisx.utils.TextUtil;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis 分条原子数字（增量分散到多个子键，避免热点键；读取时求和）
+ * <p>
+ * 子键用哈希标签 {tag} 命名，tag 的选取让各子键的槽均匀分布在整个槽空间（即分散到集群的各节点）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisStripedAtomic {
+    private static final int SLOT_COUNT = 16384;
+    private static final int STRIPES_MAX = 1024;
+    private static final Map<Integer, String[]> STRIPE_TAGS = new ConcurrentHashMap<>();
+    //增量并续期（与 RedisAtomic 一样，每次写入都重置过期时间；一次往返）
+    private static final LuaScript INCR_SCRIPT = new LuaScript(
+            "local v = redis.call('incrby', KEYS[1], ARGV[1]) " +
+                    "redis.call('expire', KEYS[1], ARGV[2]) " +
+                    "return v");
+
+    private final RedisClient client;
+    private final int inSeconds;//永久:-1
+    private final String[] stripeKeys;
+
+    private volatile long cachedSum;
+    private volatile long cachedTime;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    public RedisStripedAtomic(RedisClient client, String atomicName, int stripes) {
+        this(client, atomicName, stripes, -1);
+    }
+
+    /**
+     * @param stripes 分条数（一般为集群节点数的 1~4 倍）
+     */
+    public RedisStripedAtomic(RedisClient client, String atomicName, int stripes, int inSeconds) {
+        if (stripes < 1 || stripes > STRIPES_MAX) {
+            throw new IllegalArgumentException("stripes must be between 1 and " + STRIPES_MAX);
+        }
+
+        this.client = client;
+        this.inSeconds = inSeconds;
+
+        String[] tags = stripeTags(stripes);
+        this.stripeKeys = new String[stripes];
+        for (int i = 0; i < stripes; i++) {
+            stripeKeys[i] = atomicName + ":{" + tags[i] + "}";
+        }
+    }
+
+    /**
+     * 子键
+     */
+    public List<String> stripeKeys() {
+        return Arrays.asList(stripeKeys);
+    }
+
+    /**
+     * 原子增量（随机落到一个子键上）
+     */
+    public void increment() {
+        incrementBy(1);
+    }
+
+    /**
+     * 原子增量（随机落到一个子键上；一次往返。有时效时，每次增量都重置该子键的过期时间）
+     */
+    public void incrementBy(long num) {
+        String key = stripeKeys[ThreadLocalRandom.current().nextInt(stripeKeys.length)];
+
+        if (inSeconds > 0) {
+            client.open(s -> INCR_SCRIPT.eval(s.jedis(), Collections.singletonList(key),
+                    Arrays.asList(String.valueOf(num), String.valueOf(inSeconds))));
+        } else {
+            client.open(s -> s.key(key).incr(num));
+        }
+    }
+
+    /**
+     * 原子减量
+     */
+    public void decrement() {
+        incrementBy(-1);
+    }
+
+    /**
+     * 原子减量
+     */
+    public void decrementBy(long num) {
+        incrementBy(-num);
+    }
+
+    /**
+     * 获取值（汇总所有子键；非集群为一次 MGET，集群为一次管道）
+     */
+    public long get() {
+        long sum = 0;
+
+        if (client.jedis() instanceof JedisCluster) {
+            List<Response<String>> responses = new ArrayList<>(stripeKeys.length);
+            try (RedisPipelineSession session = client.openPipeline()) {
+                for (String key : stripeKeys) {
+                    responses.add(session.key(key).get());
+                }
+            }
+
+            for (Response<String> rst : responses) {
+                sum += parseLong(rst.get());
+            }
+        } else {
+            List<String> values = client.openAndGet(s -> s.getMore(stripeKeys));
+            for (String val : values) {
+                sum += parseLong(val);
+            }
+        }
+
+        cachedSum = sum;
+        cachedTime = System.currentTimeMillis();
+
+        return sum;
+    }
+
+    /**
+     * 获取近似值（缓存超过 maxAgeMillis 时，后台刷新；首次会同步获取）
+     */
+    public long getApprox(long maxAgeMillis) {
+        if (cachedTime == 0) {
+            return get();
+        }
+
+        if (System.currentTimeMillis() - cachedTime > maxAgeMillis && refreshing.compareAndSet(false, true)) {
+            try {
+                client.worker().execute(() -> {
+                    try {
+                        get();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                refreshing.set(false);
+            }
+        }
+
+        return cachedSum;
+    }
+
+    /**
+     * 清空（删除所有子键）
+     */
+    public void clear() {
+        client.open(s -> s.unlinkKeys(Arrays.asList(stripeKeys)));
+        cachedSum = 0;
+        cachedTime = 0;
+    }
+
+    private static long parseLong(String val) {
+        return TextUtil.isEmpty(val) ? 0L : Long.parseLong(val);
+    }
+
+    /**
+     * 选取分条标签（第 i 个标签的槽，落在第 i 段槽区间内）
+     */
+    private static String[] stripeTags(int stripes) {
+        return STRIPE_TAGS.computeIfAbsent(stripes, n -> {
+            String[] tags = new String[n];
+            int t = 0;
+
+            for (int i = 0; i < n; i++) {
+                int from = (int) ((long) SLOT_COUNT * i / n);
+                int to = (int) ((long) SLOT_COUNT * (i + 1) / n);
+
+                while (true) {
+                    String tag = String.valueOf(t++);
+                    int slot = JedisClusterCRC16.getSlot(tag);
+                    if (slot >= from && slot < to) {
+                        tags[i] = tag;
+                        t = 0;
+                        break;
+                    }
+                }
+            }
+
+            return tags;
+        });
+    }
+}
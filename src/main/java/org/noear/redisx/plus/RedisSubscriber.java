@@ -0,0 +1,328 @@
+package org.noear.redisx.plus;
+
+import org.noear.redisx.RedisClient;
+import org.noear.redisx.utils.KeyedSerialExecutor;
+import org.noear.redisx.utils.ThreadUtil;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Redis 订阅管理器（所有频道共用一个订阅连接与一个线程；可动态增减频道，断线后自动重连并重新订阅）
+ * <p>
+ * 消息交给执行器处理，同一频道的消息按顺序处理
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class RedisSubscriber implements AutoCloseable {
+    private static final long RETRY_MILLIS = 1000;
+    private static final long PING_MILLIS = 30_000;
+    private static final int STRIPES = 64;
+    private static final int MAX_PENDING = 10_000; //每个串行队列排队的最大消息数（满时丢弃，交给异常回调）
+
+    private final RedisClient client;
+    private final ExecutorService ownedExecutor;
+    private final KeyedSerialExecutor dispatcher;
+
+    private final Map<String, List<BiConsumer<String, String>>> channelHandlers = new ConcurrentHashMap<>();
+    private final Map<String, List<BiConsumer<String, String>>> patternHandlers = new ConcurrentHashMap<>();
+    private final Set<String> confirmed = ConcurrentHashMap.newKeySet(); //服务端已确认订阅的频道
+
+    //占位频道（保证连接上至少有一个订阅，增减频道时连接不会结束）
+    private final String holdChannel = "redisx:subscriber:" + UUID.randomUUID();
+
+    private Thread thread; //由 this 同步
+    private ScheduledFuture<?> pingTask; //由 this 同步
+    private JedisPubSub current; //由 this 同步
+    private boolean live; //由 this 同步
+    private volatile boolean closed;
+    private volatile BiConsumer<String, Throwable> errorHandler;
+
+    /**
+     * 使用内置执行器（有虚拟线程时，用虚拟线程）
+     */
+    public RedisSubscriber(RedisClient client) {
+        this.client = client;
+        this.ownedExecutor = ThreadUtil.newVirtualOrFixed("redisx-subscriber-", Runtime.getRuntime().availableProcessors());
+        this.dispatcher = new KeyedSerialExecutor(ownedExecutor, STRIPES, MAX_PENDING, this::onError);
+    }
+
+    /**
+     * @param executor 处理消息的执行器（关闭时不会关闭它）
+     */
+    public RedisSubscriber(RedisClient client, Executor executor) {
+        this.client = client;
+        this.ownedExecutor = null;
+        this.dispatcher = new KeyedSerialExecutor(executor, STRIPES, MAX_PENDING, this::onError);
+    }
+
+    /**
+     * 订阅频道
+     *
+     * @param handler 处理器（频道，消息）
+     */
+    public Subscription subscribe(BiConsumer<String, String> handler, String... channels) {
+        return add(channelHandlers, channels, handler, false);
+    }
+
+    /**
+     * 根据匹配模式订阅
+     *
+     * @param handler 处理器（频道，消息）
+     */
+    public Subscription psubscribe(BiConsumer<String, String> handler, String... patterns) {
+        return add(patternHandlers, patterns, handler, true);
+    }
+
+    /**
+     * 已订阅的频道
+     */
+    public Set<String> channels() {
+        return channelHandlers.keySet();
+    }
+
+    /**
+     * 频道是否已被服务端确认订阅（确认之前发布的消息收不到；断线重连期间为 false）
+     */
+    public boolean isReady(String channel) {
+        return confirmed.contains(channel);
+    }
+
+    private synchronized Subscription add(Map<String, List<BiConsumer<String, String>>> handlers, String[] names,
+                                          BiConsumer<String, String> handler, boolean pattern) {
+        if (closed) {
+            throw new IllegalStateException("RedisSubscriber is closed");
+        }
+
+        for (String name : names) {
+            boolean first = handlers.containsKey(name) == false;
+            handlers.computeIfAbsent(name, k -> new CopyOnWriteArrayList<>()).add(handler);
+
+            if (first && live) {
+                //连接未就绪时，由就绪回调统一补订
+                try {
+                    if (pattern) {
+                        current.psubscribe(name);
+                    } else {
+                        current.subscribe(name);
+                    }
+                } catch (RuntimeException e) {
+                    //连接已断开，重连后补订
+                }
+            }
+        }
+
+        startIfAbsent();
+
+        return new Subscription(names, () -> remove(handlers, names, handler, pattern));
+    }
+
+    private synchronized void remove(Map<String, List<BiConsumer<String, String>>> handlers, String[] names,
+                                     BiConsumer<String, String> handler, boolean pattern) {
+        for (String name : names) {
+            List<BiConsumer<String, String>> list = handlers.get(name);
+            if (list == null || list.remove(handler) == false || list.size() > 0) {
+                continue;
+            }
+
+            handlers.remove(name);
+            confirmed.remove(name);
+
+            if (live) {
+                try {
+                    if (pattern) {
+                        current.punsubscribe(name);
+                    } else {
+                        current.unsubscribe(name);
+                    }
+                } catch (RuntimeException e) {
+                    //连接已断开，重连时不会再订阅它
+                }
+            }
+        }
+    }
+
+    private void startIfAbsent() {
+        if (thread == null) {
+            thread = ThreadUtil.daemonFactory("redisx-subscriber-loop-").newThread(this::loop);
+            thread.start();
+
+            pingTask = client.scheduleOnWorkerWithFixedDelay(this::ping, PING_MILLIS, PING_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void loop() {
+        while (closed == false) {
+            JedisPubSub pubSub = new PubSub();
+
+            synchronized (this) {
+                current = pubSub;
+                live = false;
+            }
+
+            try {
+                //先订阅占位频道，其余在就绪回调里补订
+                client.open(s -> s.subscribe(pubSub, holdChannel));
+            } catch (Throwable e) {
+                //连接异常，稍后重连
+            }
+
+            synchronized (this) {
+                live = false;
+                current = null;
+                confirmed.clear();
+            }
+
+            if (closed == false) {
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 就绪回调：补订所有频道（首次订阅与重连后都会执行）
+     */
+    private synchronized void onReady(JedisPubSub pubSub) {
+        if (pubSub != current || live) {
+            return;
+        }
+
+        live = true;
+
+        if (closed) {
+            pubSub.unsubscribe();
+            return;
+        }
+
+        if (channelHandlers.size() > 0) {
+            pubSub.subscribe(channelHandlers.keySet().toArray(new String[0]));
+        }
+
+        if (patternHandlers.size() > 0) {
+            pubSub.psubscribe(patternHandlers.keySet().toArray(new String[0]));
+        }
+    }
+
+    private synchronized void ping() {
+        if (live) {
+            try {
+                current.ping();
+            } catch (RuntimeException e) {
+                //读线程会感知断线并重连
+            }
+        }
+    }
+
+    /**
+     * 设置异常回调（处理器异常，或消息积压超过上限被丢弃时；参数为频道，异常）
+     */
+    public void errorHandler(BiConsumer<String, Throwable> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    private void onError(String channel, Throwable error) {
+        BiConsumer<String, Throwable> tmp = errorHandler;
+        if (tmp != null) {
+            tmp.accept(channel, error);
+        }
+    }
+
+    private void dispatch(List<BiConsumer<String, String>> handlers, String channel, String message) {
+        if (handlers == null) {
+            return;
+        }
+
+        for (BiConsumer<String, String> handler : handlers) {
+            dispatcher.execute(channel, () -> handler.accept(channel, message));
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+
+            if (pingTask != null) {
+                pingTask.cancel(false);
+            }
+
+            if (live) {
+                try {
+                    current.punsubscribe();
+                    current.unsubscribe();
+                } catch (RuntimeException e) {
+                    //连接已断开
+                }
+            }
+        }
+
+        if (thread != null) {
+            thread.interrupt();
+        }
+
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private class PubSub extends JedisPubSub {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            if (holdChannel.equals(channel)) {
+                onReady(this);
+            } else if (channelHandlers.containsKey(channel)) {
+                confirmed.add(channel);
+            }
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+            dispatch(channelHandlers.get(channel), channel, message);
+        }
+
+        @Override
+        public void onPMessage(String pattern, String channel, String message) {
+            dispatch(patternHandlers.get(pattern), channel, message);
+        }
+    }
+
+    /**
+     * 订阅（关闭即取消；频道没有处理器时，退订）
+     */
+    public static class Subscription implements AutoCloseable {
+        private final String[] names;
+        private final Runnable canceler;
+
+        Subscription(String[] names, Runnable canceler) {
+            this.names = names;
+            this.canceler = canceler;
+        }
+
+        /**
+         * 频道或匹配模式
+         */
+        public String[] names() {
+            return names.clone();
+        }
+
+        @Override
+        public void close() {
+            canceler.run();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.noear.redisx.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * 按键串行执行器（同一个 key 的任务按提交顺序执行；不同 key 的任务在执行器上并发执行）
+ * <p>
+ * key 按哈希分到固定数量的串行队列里，不同 key 也可能共用一个队列。每个队列有上限，满时拒绝（交给异常回调）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class KeyedSerialExecutor {
+    private final Executor executor;
+    private final SerialQueue[] queues;
+    private final int maxPending;
+    private final BiConsumer<String, Throwable> errorHandler;
+
+    /**
+     * @param stripes      串行队列数量
+     * @param maxPending   每个队列排队的最大任务数
+     * @param errorHandler 任务异常或被拒绝时的回调（key，异常；可为 null）
+     */
+    public KeyedSerialExecutor(Executor executor, int stripes, int maxPending, BiConsumer<String, Throwable> errorHandler) {
+        this.executor = executor;
+        this.queues = new SerialQueue[Math.max(1, stripes)];
+        this.maxPending = Math.max(1, maxPending);
+        this.errorHandler = errorHandler;
+
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new SerialQueue();
+        }
+    }
+
+    /**
+     * 执行（任务异常不影响后续任务）
+     *
+     * @return 是否已接收（队列满时拒绝）
+     */
+    public boolean execute(String key, Runnable task) {
+        return queues[(key.hashCode() & 0x7FFFFFFF) % queues.length].execute(key, task);
+    }
+
+    private void onError(String key, Throwable error) {
+        if (errorHandler != null) {
+            try {
+                errorHandler.accept(key, error);
+            } catch (Throwable e) {
+                //回调自身的异常，忽略
+            }
+        }
+    }
+
+    private class SerialQueue implements Runnable {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        boolean execute(String key, Runnable task) {
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                onError(key, new RejectedExecutionException("Serial queue is full, pending: " + maxPending));
+                return false;
+            }
+
+            tasks.add(() -> {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    onError(key, e);
+                }
+            });
+            schedule();
+            return true;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    //执行器已关闭
+                    pending.addAndGet(-tasks.size());
+                    tasks.clear();
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                pending.decrementAndGet();
+                task.run(); //已包装，不会抛出
+            }
+
+            scheduled.set(false);
+
+            if (tasks.isEmpty() == false) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.noear.redisx.utils;
+
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Lua 脚本（优先 EVALSHA，服务端没有缓存时回退为 EVAL 并自动缓存）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class LuaScript {
+    private final String script;
+    private final String sha1;
+
+    public LuaScript(String script) {
+        this.script = script;
+        this.sha1 = sha1Hex(script);
+    }
+
+    /**
+     * 脚本内容
+     */
+    public String script() {
+        return script;
+    }
+
+    /**
+     * 脚本摘要
+     */
+    public String sha1() {
+        return sha1;
+    }
+
+    /**
+     * 执行（集群时，按第一个 key 路由）
+     */
+    public Object eval(UnifiedJedis jedis, List<String> keys, List<String> args) {
+        try {
+            return jedis.evalsha(sha1, keys, args);
+        } catch (JedisNoScriptException e) {
+            return jedis.eval(script, keys, args);
+        }
+    }
+
+    private static String sha1Hex(String str) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(str.getBytes(StandardCharsets.UTF_8));
+            StringBuilder buf = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+                buf.append(Character.forDigit(b & 0xF, 16));
+            }
+            return buf.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.noear.redisx.utils;
+
+import redis.clients.jedis.ScanIteration;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 扫描迭代器（按页懒加载，跟随游标直到结束；内存只占一页）
+ * <p>
+ * 与 SCAN 指令一样，扫描期间有变更时，同一项可能出现多次
+ *
+ * @author noear
+ * @since 1.9
+ */
+public abstract class ScanIterator<T> implements Iterator<T> {
+    private Iterator<T> page = Collections.emptyIterator();
+
+    /**
+     * 是否已完成
+     */
+    protected abstract boolean isCompleted();
+
+    /**
+     * 获取下一页
+     */
+    protected abstract Collection<T> nextPage();
+
+    @Override
+    public boolean hasNext() {
+        while (page.hasNext() == false) {
+            if (isCompleted()) {
+                return false;
+            }
+
+            Collection<T> tmp = nextPage();
+            if (tmp != null) {
+                page = tmp.iterator();
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (hasNext()) {
+            return page.next();
+        } else {
+            throw new NoSuchElementException();
+        }
+    }
+
+    /**
+     * 转为流
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 基于游标的扫描（如 HSCAN, SSCAN, ZSCAN）
+     *
+     * @param pager 按游标获取一页
+     */
+    public static <T> ScanIterator<T> of(Function<String, ScanResult<T>> pager) {
+        return new ScanIterator<T>() {
+            private String cursor = ScanParams.SCAN_POINTER_START;
+            private boolean completed;
+
+            @Override
+            protected boolean isCompleted() {
+                return completed;
+            }
+
+            @Override
+            protected Collection<T> nextPage() {
+                ScanResult<T> result = pager.apply(cursor);
+                cursor = result.getCursor();
+                completed = result.isCompleteIteration();
+                return result.getResult();
+            }
+        };
+    }
+
+    /**
+     * 基于主键扫描迭代（集群时，会依次扫描所有主节点）
+     */
+    public static ScanIterator<String> of(ScanIteration iteration) {
+        return new ScanIterator<String>() {
+            @Override
+            protected boolean isCompleted() {
+                return iteration.isIterationCompleted();
+            }
+
+            @Override
+            protected Collection<String> nextPage() {
+                return iteration.nextBatchList();
+            }
+        };
+    }
+}
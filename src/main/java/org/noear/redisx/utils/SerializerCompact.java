@@ -0,0 +1,632 @@
+package org.noear.redisx.utils;
+
+import org.noear.redisx.BinarySerializer;
+import org.noear.redisx.Serializer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 序列化接口 紧凑二进制实现（类似 Kryo/FST）
+ * <p>
+ * 类结构在首次使用时解析为 MethodHandle 访问器并缓存；注册过的类只写编号（两端的注册顺序须一致），
+ * 未注册的类写类名。无无参构造的类、枚举、数组等，回退为 Java 序列化。不支持循环引用
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class SerializerCompact implements Serializer, BinarySerializer {
+    static final byte T_NULL = 0;
+    static final byte T_STRING = 1;
+    static final byte T_INT = 2;
+    static final byte T_LONG = 3;
+    static final byte T_DOUBLE = 4;
+    static final byte T_FLOAT = 5;
+    static final byte T_TRUE = 6;
+    static final byte T_FALSE = 7;
+    static final byte T_SHORT = 8;
+    static final byte T_BYTE = 9;
+    static final byte T_CHAR = 10;
+    static final byte T_DATE = 11;
+    static final byte T_BYTES = 12;
+    static final byte T_LIST = 13;
+    static final byte T_MAP = 14;
+    static final byte T_LINKED_MAP = 15;
+    static final byte T_SET = 16;
+    static final byte T_OBJECT = 17;
+    static final byte T_OBJECT_NAMED = 18;
+    static final byte T_JAVA = 19;
+
+    private static final int BUFFER_SIZE = 4 * 1024;
+    private static final int BUFFER_SIZE_MAX = 1024 * 1024;
+
+    private final Map<Class<?>, ClassInfo> classInfos = new ConcurrentHashMap<>();
+    private volatile ClassInfo[] registered = new ClassInfo[0];
+    private final ThreadLocal<Output> outputLocal = ThreadLocal.withInitial(() -> new Output(BUFFER_SIZE));
+
+    /**
+     * 注册类（两端的注册顺序须一致）
+     */
+    public synchronized SerializerCompact register(Class<?>... classes) {
+        for (Class<?> clz : classes) {
+            ClassInfo info = getClassInfo(clz);
+            if (info.id >= 0) {
+                continue;
+            }
+
+            if (info.fields == null) {
+                throw new IllegalArgumentException("Class cannot be registered (no default constructor): " + clz.getName());
+            }
+
+            ClassInfo[] tmp = Arrays.copyOf(registered, registered.length + 1);
+            info.id = registered.length;
+            tmp[info.id] = info;
+            registered = tmp;
+        }
+
+        return this;
+    }
+
+    @Override
+    public String encode(Object obj) {
+        return Base64.getEncoder().encodeToString(encodeBytes(obj));
+    }
+
+    @Override
+    public Object decode(String str, Type type) {
+        return decodeBytes(Base64.getDecoder().decode(str), type);
+    }
+
+    @Override
+    public byte[] encodeBytes(Object obj) {
+        Output out = outputLocal.get();
+        out.pos = 0;
+
+        try {
+            writeValue(out, obj);
+            return Arrays.copyOf(out.buf, out.pos);
+        } finally {
+            //避免个别大对象让线程长期持有大缓冲
+            if (out.buf.length > BUFFER_SIZE_MAX) {
+                outputLocal.remove();
+            }
+        }
+    }
+
+    @Override
+    public Object decodeBytes(byte[] bytes, Type type) {
+        if (bytes == null) {
+            return null;
+        }
+
+        return readValue(new Input(bytes));
+    }
+
+    private ClassInfo getClassInfo(Class<?> clz) {
+        ClassInfo info = classInfos.get(clz);
+        if (info == null) {
+            info = classInfos.computeIfAbsent(clz, ClassInfo::new);
+        }
+        return info;
+    }
+
+    //------------------
+    //写
+
+    private void writeValue(Output out, Object val) {
+        if (val == null) {
+            out.writeByte(T_NULL);
+            return;
+        }
+
+        Class<?> clz = val.getClass();
+
+        if (clz == String.class) {
+            out.writeByte(T_STRING);
+            out.writeString((String) val);
+        } else if (clz == Integer.class) {
+            out.writeByte(T_INT);
+            out.writeVarLong((Integer) val);
+        } else if (clz == Long.class) {
+            out.writeByte(T_LONG);
+            out.writeVarLong((Long) val);
+        } else if (clz == Double.class) {
+            out.writeByte(T_DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits((Double) val));
+        } else if (clz == Float.class) {
+            out.writeByte(T_FLOAT);
+            out.writeVarLong(Float.floatToRawIntBits((Float) val));
+        } else if (clz == Boolean.class) {
+            out.writeByte((Boolean) val ? T_TRUE : T_FALSE);
+        } else if (clz == Short.class) {
+            out.writeByte(T_SHORT);
+            out.writeVarLong((Short) val);
+        } else if (clz == Byte.class) {
+            out.writeByte(T_BYTE);
+            out.writeByte((Byte) val);
+        } else if (clz == Character.class) {
+            out.writeByte(T_CHAR);
+            out.writeVarLong((Character) val);
+        } else if (clz == Date.class) {
+            out.writeByte(T_DATE);
+            out.writeVarLong(((Date) val).getTime());
+        } else if (clz == byte[].class) {
+            byte[] bytes = (byte[]) val;
+            out.writeByte(T_BYTES);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+        } else if (clz == ArrayList.class) {
+            List<?> list = (List<?>) val;
+            out.writeByte(T_LIST);
+            out.writeVarLong(list.size());
+            for (int i = 0, len = list.size(); i < len; i++) {
+                writeValue(out, list.get(i));
+            }
+        } else if (clz == HashMap.class || clz == LinkedHashMap.class) {
+            Map<?, ?> map = (Map<?, ?>) val;
+            out.writeByte(clz == HashMap.class ? T_MAP : T_LINKED_MAP);
+            out.writeVarLong(map.size());
+            for (Map.Entry<?, ?> kv : map.entrySet()) {
+                writeValue(out, kv.getKey());
+                writeValue(out, kv.getValue());
+            }
+        } else if (clz == HashSet.class) {
+            Set<?> set = (Set<?>) val;
+            out.writeByte(T_SET);
+            out.writeVarLong(set.size());
+            for (Object item : set) {
+                writeValue(out, item);
+            }
+        } else {
+            writeObject(out, val, getClassInfo(clz));
+        }
+    }
+
+    private void writeObject(Output out, Object val, ClassInfo info) {
+        if (info.fields == null) {
+            byte[] bytes = SerializationUtil.serialize(val);
+            out.writeByte(T_JAVA);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+            return;
+        }
+
+        if (info.id >= 0) {
+            out.writeByte(T_OBJECT);
+            out.writeVarLong(info.id);
+        } else {
+            out.writeByte(T_OBJECT_NAMED);
+            out.writeString(info.type.getName());
+        }
+
+        out.writeVarLong(info.schema);
+
+        try {
+            for (FieldInfo f : info.fields) {
+                switch (f.kind) {
+                    case K_INT:
+                        out.writeVarLong((int) f.getter.invokeExact(val));
+                        break;
+                    case K_LONG:
+                        out.writeVarLong((long) f.getter.invokeExact(val));
+                        break;
+                    case K_DOUBLE:
+                        out.writeLong(Double.doubleToRawLongBits((double) f.getter.invokeExact(val)));
+                        break;
+                    case K_FLOAT:
+                        out.writeVarLong(Float.floatToRawIntBits((float) f.getter.invokeExact(val)));
+                        break;
+                    case K_BOOLEAN:
+                        out.writeByte((boolean) f.getter.invokeExact(val) ? 1 : 0);
+                        break;
+                    case K_SHORT:
+                        out.writeVarLong((short) f.getter.invokeExact(val));
+                        break;
+                    case K_BYTE:
+                        out.writeByte((byte) f.getter.invokeExact(val));
+                        break;
+                    case K_CHAR:
+                        out.writeVarLong((char) f.getter.invokeExact(val));
+                        break;
+                    default:
+                        writeValue(out, (Object) f.getter.invokeExact(val));
+                        break;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Failed to serialize object of type: " + info.type, e);
+        }
+    }
+
+    //------------------
+    //读
+
+    private Object readValue(Input in) {
+        byte tag = in.readByte();
+
+        switch (tag) {
+            case T_NULL:
+                return null;
+            case T_STRING:
+                return in.readString();
+            case T_INT:
+                return (int) in.readVarLong();
+            case T_LONG:
+                return in.readVarLong();
+            case T_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case T_FLOAT:
+                return Float.intBitsToFloat((int) in.readVarLong());
+            case T_TRUE:
+                return Boolean.TRUE;
+            case T_FALSE:
+                return Boolean.FALSE;
+            case T_SHORT:
+                return (short) in.readVarLong();
+            case T_BYTE:
+                return in.readByte();
+            case T_CHAR:
+                return (char) in.readVarLong();
+            case T_DATE:
+                return new Date(in.readVarLong());
+            case T_BYTES:
+                return in.readBytes((int) in.readVarLong());
+            case T_LIST: {
+                int size = (int) in.readVarLong();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case T_MAP:
+            case T_LINKED_MAP: {
+                int size = (int) in.readVarLong();
+                int capacity = (int) (size / 0.75f) + 1;
+                Map<Object, Object> map = (tag == T_MAP ? new HashMap<>(capacity) : new LinkedHashMap<>(capacity));
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                return map;
+            }
+            case T_SET: {
+                int size = (int) in.readVarLong();
+                Set<Object> set = new HashSet<>((int) (size / 0.75f) + 1);
+                for (int i = 0; i < size; i++) {
+                    set.add(readValue(in));
+                }
+                return set;
+            }
+            case T_OBJECT: {
+                int id = (int) in.readVarLong();
+                ClassInfo[] tmp = registered;
+                if (id >= tmp.length) {
+                    throw new IllegalStateException("Failed to deserialize object, unregistered class id: " + id);
+                }
+                return readObject(in, tmp[id]);
+            }
+            case T_OBJECT_NAMED: {
+                String name = in.readString();
+                try {
+                    return readObject(in, getClassInfo(Class.forName(name)));
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("Failed to deserialize object type", e);
+                }
+            }
+            case T_JAVA:
+                return SerializationUtil.deserialize(in.readBytes((int) in.readVarLong()));
+            default:
+                throw new IllegalArgumentException("Failed to deserialize object, unknown tag: " + tag);
+        }
+    }
+
+    private Object readObject(Input in, ClassInfo info) {
+        long schema = in.readVarLong();
+        if (info.fields == null || info.schema != schema) {
+            throw new IllegalStateException("Failed to deserialize object, class structure changed: " + info.type.getName());
+        }
+
+        try {
+            Object obj = info.constructor.invokeExact();
+
+            for (FieldInfo f : info.fields) {
+                switch (f.kind) {
+                    case K_INT:
+                        f.setter.invokeExact(obj, (int) in.readVarLong());
+                        break;
+                    case K_LONG:
+                        f.setter.invokeExact(obj, in.readVarLong());
+                        break;
+                    case K_DOUBLE:
+                        f.setter.invokeExact(obj, Double.longBitsToDouble(in.readLong()));
+                        break;
+                    case K_FLOAT:
+                        f.setter.invokeExact(obj, Float.intBitsToFloat((int) in.readVarLong()));
+                        break;
+                    case K_BOOLEAN:
+                        f.setter.invokeExact(obj, in.readByte() != 0);
+                        break;
+                    case K_SHORT:
+                        f.setter.invokeExact(obj, (short) in.readVarLong());
+                        break;
+                    case K_BYTE:
+                        f.setter.invokeExact(obj, in.readByte());
+                        break;
+                    case K_CHAR:
+                        f.setter.invokeExact(obj, (char) in.readVarLong());
+                        break;
+                    default:
+                        f.setter.invokeExact(obj, readValue(in));
+                        break;
+                }
+            }
+
+            return obj;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to deserialize object type: " + info.type.getName(), e);
+        }
+    }
+
+    //------------------
+    //类结构
+
+    static final int K_OBJECT = 0;
+    static final int K_INT = 1;
+    static final int K_LONG = 2;
+    static final int K_DOUBLE = 3;
+    static final int K_FLOAT = 4;
+    static final int K_BOOLEAN = 5;
+    static final int K_SHORT = 6;
+    static final int K_BYTE = 7;
+    static final int K_CHAR = 8;
+
+    private static class ClassInfo {
+        final Class<?> type;
+        final MethodHandle constructor;
+        final FieldInfo[] fields; //为 null 时，回退为 Java 序列化
+        final int schema; //字段名与类型的摘要（两端结构不一致时，反序列化失败）
+        volatile int id = -1;
+
+        ClassInfo(Class<?> type) {
+            this.type = type;
+
+            MethodHandle ctor = null;
+            FieldInfo[] fieldArray = null;
+
+            if (type.isEnum() == false && type.isArray() == false && type.isInterface() == false
+                    && Modifier.isAbstract(type.getModifiers()) == false && isJdkClass(type) == false) {
+                try {
+                    Constructor<?> c = type.getDeclaredConstructor();
+                    c.setAccessible(true);
+                    ctor = MethodHandles.lookup().unreflectConstructor(c)
+                            .asType(MethodType.methodType(Object.class));
+                    fieldArray = resolveFields(type);
+                } catch (Exception e) {
+                    //无无参构造，或不可访问（如 jdk 内部类）
+                    ctor = null;
+                    fieldArray = null;
+                }
+            }
+
+            this.constructor = ctor;
+            this.fields = fieldArray;
+            this.schema = schemaOf(fieldArray);
+        }
+
+        private static int schemaOf(FieldInfo[] fields) {
+            if (fields == null) {
+                return 0;
+            }
+
+            int hash = 1;
+            for (FieldInfo f : fields) {
+                hash = 31 * hash + f.name.hashCode();
+                hash = 31 * hash + f.typeName.hashCode();
+            }
+            return hash;
+        }
+
+        private static boolean isJdkClass(Class<?> type) {
+            String name = type.getName();
+            return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+        }
+
+        private static FieldInfo[] resolveFields(Class<?> type) throws IllegalAccessException {
+            List<Field> list = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    int mod = f.getModifiers();
+                    if (Modifier.isStatic(mod) || Modifier.isTransient(mod)) {
+                        continue;
+                    }
+                    list.add(f);
+                }
+            }
+
+            //按名字排序，让结构与声明顺序无关
+            list.sort(Comparator.comparing((Field f) -> f.getName()).thenComparing(f -> f.getDeclaringClass().getName()));
+
+            FieldInfo[] array = new FieldInfo[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = new FieldInfo(list.get(i));
+            }
+            return array;
+        }
+    }
+
+    private static class FieldInfo {
+        final String name;
+        final String typeName;
+        final int kind;
+        final MethodHandle getter;
+        final MethodHandle setter;
+
+        FieldInfo(Field field) throws IllegalAccessException {
+            field.setAccessible(true);
+
+            Class<?> ft = field.getType();
+            name = field.getName();
+            typeName = ft.getName();
+            Class<?> ht;
+            if (ft == int.class) {
+                kind = K_INT;
+            } else if (ft == long.class) {
+                kind = K_LONG;
+            } else if (ft == double.class) {
+                kind = K_DOUBLE;
+            } else if (ft == float.class) {
+                kind = K_FLOAT;
+            } else if (ft == boolean.class) {
+                kind = K_BOOLEAN;
+            } else if (ft == short.class) {
+                kind = K_SHORT;
+            } else if (ft == byte.class) {
+                kind = K_BYTE;
+            } else if (ft == char.class) {
+                kind = K_CHAR;
+            } else {
+                kind = K_OBJECT;
+            }
+            ht = (kind == K_OBJECT ? Object.class : ft);
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            getter = lookup.unreflectGetter(field)
+                    .asType(MethodType.methodType(ht, Object.class));
+
+            //final 字段在 setAccessible 之后，也可以取得 setter（只在解析时取一次）
+            setter = lookup.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, ht));
+        }
+    }
+
+    //------------------
+    //缓冲
+
+    private static class Output {
+        byte[] buf;
+        int pos;
+
+        Output(int size) {
+            buf = new byte[size];
+        }
+
+        void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + n));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes, int off, int len) {
+            ensure(len);
+            System.arraycopy(bytes, off, buf, pos, len);
+            pos += len;
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int i = 56; i >= 0; i -= 8) {
+                buf[pos++] = (byte) (v >>> i);
+            }
+        }
+
+        /**
+         * zigzag 变长整数
+         */
+        void writeVarLong(long v) {
+            ensure(10);
+            v = (v << 1) ^ (v >> 63);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeString(String str) {
+            int len = str.length();
+            boolean ascii = true;
+            for (int i = 0; i < len; i++) {
+                if (str.charAt(i) >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+            }
+
+            if (ascii) {
+                writeVarLong(len);
+                ensure(len);
+                for (int i = 0; i < len; i++) {
+                    buf[pos++] = (byte) str.charAt(i);
+                }
+            } else {
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    private static class Input {
+        final byte[] buf;
+        int pos;
+
+        Input(byte[] buf) {
+            this.buf = buf;
+        }
+
+        byte readByte() {
+            return buf[pos++];
+        }
+
+        byte[] readBytes(int len) {
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + len);
+            pos += len;
+            return bytes;
+        }
+
+        long readLong() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        long readVarLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String readString() {
+            int len = (int) readVarLong();
+            String str = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return str;
+        }
+    }
+}
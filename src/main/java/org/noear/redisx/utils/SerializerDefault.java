@@ -1,5 +1,6 @@
 package org.noear.redisx.utils;
 
+import org.noear.redisx.BinarySerializer;
 import org.noear.redisx.Serializer;
 
 import java.lang.reflect.Type;
@@ -11,16 +12,26 @@ import java.util.Base64;
  * @author noear
  * @since 1.3
  */
-public class SerializerDefault implements Serializer {
+public class SerializerDefault implements Serializer, BinarySerializer {
     @Override
     public String encode(Object obj) {
-        byte[] bytes = SerializationUtil.serialize(obj);
+        byte[] bytes = encodeBytes(obj);
         return Base64.getEncoder().encodeToString(bytes);
     }
 
     @Override
     public Object decode(String str, Type type) {
         byte[] bytes = Base64.getDecoder().decode(str);
+        return decodeBytes(bytes, type);
+    }
+
+    @Override
+    public byte[] encodeBytes(Object obj) {
+        return SerializationUtil.serialize(obj);
+    }
+
+    @Override
+    public Object decodeBytes(byte[] bytes, Type type) {
         return SerializationUtil.deserialize(bytes);
     }
-}
\ No newline at end of file
+}
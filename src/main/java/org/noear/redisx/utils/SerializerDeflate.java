@@ -0,0 +1,191 @@
+package org.noear.redisx.utils;
+
+import org.noear.redisx.BinarySerializer;
+import org.noear.redisx.Serializer;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 序列化接口 压缩包装（超过阈值才压缩，Deflate 算法）
+ * <p>
+ * 压缩后的数据以 0xFE 头字节开头（字符串形式为其 Base64，以 '/' 开头）；未压缩的数据保持原样，所以旧数据仍可读取。
+ * 被包装的序列化，其输出不能以 0xFE 或 '/' 开头（内置的实现都满足）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class SerializerDeflate implements Serializer, BinarySerializer {
+    private static final byte HEADER = (byte) 0xFE;
+    private static final char HEADER_CHAR = '/'; //0xFE 头字节 Base64 后的首字符
+
+    private final Serializer serializer;
+    private final int threshold;
+    private final int level;
+
+    private final ThreadLocal<Deflater> deflaterLocal;
+    private final ThreadLocal<Inflater> inflaterLocal = ThreadLocal.withInitial(Inflater::new);
+    private final ThreadLocal<byte[]> bufferLocal = ThreadLocal.withInitial(() -> new byte[8 * 1024]);
+
+    /**
+     * 默认包装 SerializerDefault，超过 1024 字节才压缩
+     */
+    public SerializerDeflate() {
+        this(new SerializerDefault(), 1024);
+    }
+
+    /**
+     * @param serializer 被包装的序列化（如果实现了 BinarySerializer，二进制读写会直接使用）
+     * @param threshold  压缩阈值（字节数）
+     */
+    public SerializerDeflate(Serializer serializer, int threshold) {
+        this(serializer, threshold, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param serializer 被包装的序列化
+     * @param threshold  压缩阈值（字节数）
+     * @param level      压缩级别（0-9）
+     */
+    public SerializerDeflate(Serializer serializer, int threshold, int level) {
+        AssertUtil.notNull(serializer, "serializer cannot be null");
+
+        this.serializer = serializer;
+        this.threshold = threshold;
+        this.level = level;
+        this.deflaterLocal = ThreadLocal.withInitial(() -> new Deflater(this.level));
+    }
+
+    @Override
+    public String encode(Object obj) {
+        String str = serializer.encode(obj);
+
+        if (str == null || str.length() < threshold) {
+            return str;
+        }
+
+        byte[] bytes = compress(str.getBytes(StandardCharsets.UTF_8));
+        if (bytes == null || (bytes.length + 2) / 3 * 4 >= str.length()) {
+            return str;
+        } else {
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+    }
+
+    @Override
+    public Object decode(String str, Type type) {
+        if (str != null && str.length() > 0 && str.charAt(0) == HEADER_CHAR) {
+            byte[] bytes = Base64.getDecoder().decode(str);
+            if (bytes.length > 0 && bytes[0] == HEADER) {
+                str = new String(decompress(bytes), StandardCharsets.UTF_8);
+            }
+        }
+
+        return serializer.decode(str, type);
+    }
+
+    @Override
+    public byte[] encodeBytes(Object obj) {
+        byte[] bytes;
+        if (serializer instanceof BinarySerializer) {
+            bytes = ((BinarySerializer) serializer).encodeBytes(obj);
+        } else {
+            bytes = serializer.encode(obj).getBytes(StandardCharsets.UTF_8);
+        }
+
+        if (bytes == null || bytes.length < threshold) {
+            return bytes;
+        }
+
+        byte[] compressed = compress(bytes);
+        return compressed == null ? bytes : compressed;
+    }
+
+    @Override
+    public Object decodeBytes(byte[] bytes, Type type) {
+        if (bytes != null && bytes.length > 0 && bytes[0] == HEADER) {
+            bytes = decompress(bytes);
+        }
+
+        if (serializer instanceof BinarySerializer) {
+            return ((BinarySerializer) serializer).decodeBytes(bytes, type);
+        } else {
+            return serializer.decode(bytes == null ? null : new String(bytes, StandardCharsets.UTF_8), type);
+        }
+    }
+
+    /**
+     * 压缩（带头字节；没有变小则返回 null）
+     */
+    private byte[] compress(byte[] bytes) {
+        Deflater deflater = deflaterLocal.get();
+        byte[] buf = bufferLocal.get();
+
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            byte[] out = new byte[Math.max(64, bytes.length / 2)];
+            out[0] = HEADER;
+            int pos = 1;
+
+            while (deflater.finished() == false) {
+                int n = deflater.deflate(buf);
+                if (pos + n >= bytes.length) {
+                    return null; //压缩无益
+                }
+
+                if (pos + n > out.length) {
+                    out = Arrays.copyOf(out, Math.max(out.length << 1, pos + n));
+                }
+
+                System.arraycopy(buf, 0, out, pos, n);
+                pos += n;
+            }
+
+            return Arrays.copyOf(out, pos);
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * 解压（跳过头字节）
+     */
+    private byte[] decompress(byte[] bytes) {
+        Inflater inflater = inflaterLocal.get();
+        byte[] buf = bufferLocal.get();
+
+        try {
+            inflater.setInput(bytes, 1, bytes.length - 1);
+
+            byte[] out = new byte[bytes.length * 4];
+            int pos = 0;
+
+            while (inflater.finished() == false) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Failed to decompress value, data is truncated");
+                }
+
+                if (pos + n > out.length) {
+                    out = Arrays.copyOf(out, Math.max(out.length << 1, pos + n));
+                }
+
+                System.arraycopy(buf, 0, out, pos, n);
+                pos += n;
+            }
+
+            return Arrays.copyOf(out, pos);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Failed to decompress value", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.noear.redisx.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 单飞执行（同一个 key 同时只有一个执行者，其它调用者等待并共享结果）
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class SingleFlight {
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * 执行
+     */
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = flights.putIfAbsent(key, future);
+
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        try {
+            T val = loader.get();
+            future.complete(val);
+            return val;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, future);
+        }
+    }
+
+    /**
+     * 是否执行中
+     */
+    public boolean isRunning(String key) {
+        return flights.containsKey(key);
+    }
+}
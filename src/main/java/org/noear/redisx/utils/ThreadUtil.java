@@ -0,0 +1,46 @@
+package org.noear.redisx.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程工具
+ *
+ * @author noear
+ * @since 1.9
+ */
+public class ThreadUtil {
+    /**
+     * 守护线程工厂
+     *
+     * @param namePrefix 线程名前缀
+     */
+    public static ThreadFactory daemonFactory(String namePrefix) {
+        AtomicInteger index = new AtomicInteger();
+
+        return r -> {
+            Thread thread = new Thread(r, namePrefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 新建执行器（有虚拟线程时，用虚拟线程；否则用固定数量的守护线程）
+     *
+     * @param namePrefix 线程名前缀
+     * @param nThreads   平台线程数量
+     */
+    public static ExecutorService newVirtualOrFixed(String namePrefix, int nThreads) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Throwable e) {
+            //jdk21 之前没有虚拟线程
+            return Executors.newFixedThreadPool(nThreads, daemonFactory(namePrefix));
+        }
+    }
+}
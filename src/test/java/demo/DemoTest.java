@@ -8,12 +8,22 @@ import org.noear.redisx.plus.*;
 import org.noear.solon.annotation.Inject;
 import org.noear.redisx.RedisClient;
 import org.noear.solon.test.SolonTest;
+import redis.clients.jedis.Response;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * @author noear 2021/10/12 created
@@ -23,6 +33,9 @@ public class DemoTest {
     @Inject
     RedisClient client;
 
+    @Inject("${test.rd1}")
+    Properties clientProps;
+
     @Test
     public void test() {
         //写操作:: key().expire().xxx()
@@ -315,4 +328,884 @@ public class DemoTest {
         System.out.println(countDownLatch.getCount());
         assert countDownLatch.getCount() == 0;
     }
+
+    @Test
+    public void test_expirePipelined() {
+        boolean original = client.expirePipelined();
+
+        try {
+            //写入后再发 pexpire，与同批发送，过期时间都要设上
+            for (boolean pipelined : new boolean[]{false, true}) {
+                client.expirePipelined(pipelined);
+                client.open(s -> s.key("test:expire:hash").delete());
+                client.open(s -> s.key("test:expire:str").delete());
+
+                client.open(s -> {
+                    for (int i = 0; i < 100; i++) {
+                        s.key("test:expire:hash").expire(10).hashSet("f" + i, i);
+                    }
+                    s.key("test:expire:str").expire(10).set("v");
+                });
+
+                assert client.getHash("test:expire:hash").size() == 100;
+
+                long pttl1 = client.openAndGet(s -> s.jedis().pttl("test:expire:hash"));
+                long pttl2 = client.openAndGet(s -> s.jedis().pttl("test:expire:str"));
+                assert pttl1 > 0 && pttl1 <= 10_000 : "pipelined=" + pipelined + ", pttl=" + pttl1;
+                assert pttl2 > 0 && pttl2 <= 10_000 : "pipelined=" + pipelined + ", pttl=" + pttl2;
+
+                //-1 为持久化
+                client.open(s -> s.key("test:expire:hash").expire(-1).hashSet("f0", 0));
+                assert client.openAndGet(s -> s.jedis().pttl("test:expire:hash")) == -1L : "pipelined=" + pipelined;
+            }
+        } finally {
+            client.expirePipelined(original);
+        }
+    }
+
+    @Test
+    public void test_pipelined() {
+        int count = 1000;
+
+        List<Response<String>> names = new ArrayList<>();
+        client.pipelined(session -> {
+            for (int i = 0; i < count; i++) {
+                session.key("user:pipe").expire(10).hashSet("name" + i, "noear" + i);
+            }
+
+            names.add(session.key("user:pipe").hashGet("name1"));
+        });
+
+        assert "noear1".equals(names.get(0).get());
+        assert client.getHash("user:pipe").size() == count;
+    }
+
+    @Test
+    public void test_async() {
+        int count = 1000;
+        RedisBucket bucket = client.getBucket();
+
+        List<CompletableFuture<Void>> stores = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            stores.add(bucket.storeAsync("async:" + i, "v" + i, 10));
+        }
+        CompletableFuture.allOf(stores.toArray(new CompletableFuture[0])).join();
+
+        //并发读取，会自动合并为少量管道批次
+        List<CompletableFuture<String>> gets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            gets.add(bucket.getAsync("async:" + i));
+        }
+
+        for (int i = 0; i < count; i++) {
+            assert ("v" + i).equals(gets.get(i).join());
+        }
+
+        RedisAtomic atomic = client.getAtomic("async_count");
+        long num = atomic.get();
+        atomic.incrementAsync().join();
+        assert atomic.getAsync().join() == num + 1;
+    }
+
+    @Test
+    public void test_bucket_near() throws Exception {
+        try (RedisNearCache nearCache = new RedisNearCache(client, "near:test", 1000, 60)) {
+            RedisBucket bucket = client.getBucket(nearCache);
+            Thread.sleep(100);
+
+            UserDo userDo = new UserDo();
+            userDo.id = 1213;
+            userDo.name = "noear";
+            bucket.storeAndSerialize("usernear:1213", userDo, 10);
+
+            UserDo userDo1 = bucket.getAndDeserialize("usernear:1213", UserDo.class);
+            UserDo userDo2 = bucket.getAndDeserialize("usernear:1213", UserDo.class);
+
+            assert userDo1.id == userDo.id;
+            assert userDo1 == userDo2; //第二次来自近端缓存（解码后的对象）
+            assert nearCache.hitCount() == 1;
+
+            //其它节点的写入，会通过总线让本地失效
+            client.getBucket().store("usernear:1213", "x", 10);
+            client.getBus().publish("near:test", "usernear:1213");
+            Thread.sleep(100);
+
+            assert "x".equals(bucket.get("usernear:1213"));
+        }
+    }
+
+    @Test
+    public void test_bucket_singleFlight() throws Exception {
+        RedisBucket bucket = client.getBucket();
+        bucket.remove("userflight:1");
+
+        AtomicInteger loads = new AtomicInteger();
+        int count = 20;
+        CountDownLatch countDownLatch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            new Thread(() -> {
+                try {
+                    UserDo userDo = bucket.getOrStoreAndSerializeSingleFlight("userflight:1", 10, UserDo.class, () -> {
+                        loads.incrementAndGet();
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+
+                        UserDo tmp = new UserDo();
+                        tmp.id = 1;
+                        return tmp;
+                    });
+
+                    assert userDo.id == 1;
+                } finally {
+                    countDownLatch.countDown();
+                }
+            }).start();
+        }
+
+        countDownLatch.await(5, TimeUnit.SECONDS);
+
+        assert countDownLatch.getCount() == 0;
+        assert loads.get() == 1;
+    }
+
+    @Test
+    public void test_bucket_binary() throws Exception {
+        RedisBucket bucket = client.getBucket();
+
+        UserDo userDo = new UserDo();
+        userDo.id = 1214;
+        userDo.name = "noear";
+
+        bucket.storeAndSerialize("userbin:str", userDo, 10);
+        bucket.storeAndSerializeBinary("userbin:bin", userDo, 10);
+
+        UserDo userDo1 = bucket.getAndDeserializeBinary("userbin:bin", UserDo.class);
+        assert userDo1.id == userDo.id;
+        assert "noear".equals(userDo1.name);
+
+        //二进制没有 Base64 膨胀
+        int strSize = bucket.get("userbin:str").length();
+        int binSize = bucket.getBytes("userbin:bin").length;
+        System.out.println("str: " + strSize + ", bin: " + binSize);
+        assert binSize < strSize;
+
+        RedisHash hash = client.getHash("userbin:hash", 10);
+        hash.putAndSerializeBinary("1214", userDo);
+        UserDo userDo2 = hash.getAndDeserializeBinary("1214", UserDo.class);
+        assert userDo2.id == userDo.id;
+    }
+
+    @Test
+    public void test_scanStream() throws Exception {
+        RedisSession session = client.openSession();
+
+        for (int i = 0; i < 500; i++) {
+            session.key("scan:test:" + i).expire(10).set(i);
+            session.key("scan:hash").expire(10).hashSet("f" + i, i);
+        }
+
+        //跟随游标直到结束（scan 的 COUNT 只是提示，单页往往不全）
+        long keyCount = session.scanStream("scan:test:*", 50).distinct().count();
+        assert keyCount == 500;
+
+        long fieldCount = session.key("scan:hash").hashScanStream("f*", 50).count();
+        assert fieldCount == 500;
+
+        assert session.match("scan:test:499");
+        assert session.key("scan:hash").hashMatch("f499");
+        assert session.scan("scan:test:*", 20).size() == 20;
+    }
+
+    @Test
+    public void test_bucket_removeByPattern() throws Exception {
+        RedisBucket bucket = client.getBucket();
+
+        for (int i = 0; i < 250; i++) {
+            bucket.store("unlink:test:" + i, "x", 10);
+        }
+
+        assert bucket.existsByPattern("unlink:test:*") == 250;
+
+        List<Long> progress = new ArrayList<>();
+        long removed = bucket.removeByPattern("unlink:test:*", 100, progress::add);
+
+        assert removed == 250;
+        assert progress.size() >= 3;
+        assert progress.get(progress.size() - 1) == 250;
+        assert bucket.existsByPattern("unlink:test:*") == 0;
+    }
+
+    @Test
+    public void test_lock_wait() throws Exception {
+        RedisLock lock = client.getLock("lock:wait:test");
+        lock.unLock();
+
+        assert lock.lock(1, 10, TimeUnit.SECONDS, "a");
+        assert lock.tryLock(10, "b") == false;
+
+        //释放后，等待者通过通知立即拿到锁（不用等到过期）
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            lock.unLock("a");
+        }).start();
+
+        long start = System.currentTimeMillis();
+        assert lock.lock(5, -1, TimeUnit.SECONDS, "b");
+        assert System.currentTimeMillis() - start < 3000;
+        assert "b".equals(lock.getHolder());
+
+        //看门狗续期（租期 30 秒）
+        assert lock.ttl() > 20;
+
+        lock.unLock("x"); //持有人不同，不会解锁
+        assert lock.isLocked();
+
+        lock.unLock("b");
+        assert lock.isLocked() == false;
+    }
+
+    @Test
+    public void test_lock_reentrant() throws Exception {
+        RedisReentrantLock lock = client.getReentrantLock("lock:reentrant:test");
+
+        assert lock.tryLock(10, TimeUnit.SECONDS, "a");
+        assert lock.tryLock(10, TimeUnit.SECONDS, "a");
+        assert lock.tryLock(10, TimeUnit.SECONDS, "b") == false;
+        assert lock.getHoldCount("a") == 2;
+
+        lock.unLock("a");
+        assert lock.isLocked();
+
+        lock.unLock("a");
+        assert lock.isLocked() == false;
+
+        //持有人为 null 时强制解锁
+        assert lock.tryLock(10, TimeUnit.SECONDS, "a");
+        lock.unLock(null);
+        assert lock.isLocked() == false;
+    }
+
+    @Test
+    public void test_lock_readWrite() throws Exception {
+        RedisReadWriteLock lock = client.getReadWriteLock("lock:rw:test");
+
+        //多个读者可同时持有
+        assert lock.readLock().tryLock(10, TimeUnit.SECONDS, "a");
+        assert lock.readLock().tryLock(10, TimeUnit.SECONDS, "b");
+        assert lock.writeLock().tryLock(10, TimeUnit.SECONDS, "c") == false;
+
+        lock.readLock().unLock("a");
+        lock.readLock().unLock("b");
+
+        //写者独占（可降级加读锁）
+        assert lock.writeLock().lock(1, 10, TimeUnit.SECONDS, "c");
+        assert lock.readLock().tryLock(10, TimeUnit.SECONDS, "a") == false;
+        assert lock.readLock().tryLock(10, TimeUnit.SECONDS, "c");
+
+        lock.writeLock().unLock("c");
+        assert lock.readLock().tryLock(10, TimeUnit.SECONDS, "a");
+
+        lock.readLock().unLock("a");
+        lock.readLock().unLock("c");
+        assert lock.writeLock().isLocked() == false;
+    }
+
+    @Test
+    public void test_atomic_striped() throws Exception {
+        RedisStripedAtomic atomic = client.getStripedAtomic("atomic:striped:test", 8, 60);
+        atomic.clear();
+
+        for (int i = 0; i < 100; i++) {
+            atomic.increment();
+        }
+        atomic.decrementBy(10);
+
+        assert atomic.get() == 90;
+        assert atomic.getApprox(1000) == 90;
+        assert atomic.stripeKeys().size() == 8;
+    }
+
+    @Test
+    public void test_atomic_buffered() throws Exception {
+        client.getBucket().remove("atomic:buffered:test");
+        RedisBufferedAtomic atomic = client.getBufferedAtomic("atomic:buffered:test", 60);
+
+        for (int i = 0; i < 1000; i++) {
+            atomic.increment();
+        }
+
+        //本地未刷写的也算上
+        assert atomic.get() == 1000;
+
+        atomic.flush();
+        assert client.getAtomic("atomic:buffered:test").get() == 1000;
+    }
+
+    @Test
+    public void test_id_segment() throws Exception {
+        RedisSegmentId segmentId = client.getSegmentId("id:segment:test", 100);
+
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int count = 8;
+        CountDownLatch countDownLatch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            new Thread(() -> {
+                try {
+                    for (int j = 0; j < 1000; j++) {
+                        ids.add(segmentId.generate());
+                    }
+                } finally {
+                    countDownLatch.countDown();
+                }
+            }).start();
+        }
+
+        countDownLatch.await(10, TimeUnit.SECONDS);
+
+        //不重复
+        assert ids.size() == 8000;
+    }
+
+    @Test
+    public void test_id_snowflake() throws Exception {
+        try (RedisSnowflakeId snowflakeId = client.getSnowflakeId("id:snowflake:test")) {
+            assert snowflakeId.getWorkerId() >= 0;
+
+            long last = 0;
+            for (int i = 0; i < 100_000; i++) {
+                long id = snowflakeId.generate();
+                assert id > last; //按时间有序
+                last = id;
+            }
+
+            assert Math.abs(RedisSnowflakeId.getTimestamp(last) - System.currentTimeMillis()) < 5000;
+
+            //另一个实例会租到不同的工作节点号
+            try (RedisSnowflakeId snowflakeId2 = client.getSnowflakeId("id:snowflake:test")) {
+                assert snowflakeId2.getWorkerId() != snowflakeId.getWorkerId();
+            }
+
+            //关闭后，工作节点号保留一小段时间（不立即删除）
+            long workerId = snowflakeId.getWorkerId();
+            snowflakeId.close();
+            long pttl = client.openAndGet(s -> s.jedis().pttl("id:snowflake:test:worker:" + workerId));
+            assert pttl > 0 && pttl <= 3000;
+        }
+    }
+
+    @Test
+    public void test_queue_reliable() throws Exception {
+        String queueName = "queue:reliable:test";
+        client.getQueue(queueName).clear();
+
+        RedisReliableQueue queue = client.getReliableQueue(queueName, "c1", 1);
+        queue.add("1");
+        queue.add("2");
+        queue.add("3");
+
+        //确认
+        assert "1".equals(queue.take(1));
+        assert queue.ack("1");
+        assert queue.processingSize() == 0;
+
+        //否认，放回队列后先被推出
+        assert "2".equals(queue.take());
+        assert queue.nack("2");
+        assert "2".equals(queue.take());
+        assert queue.ack("2");
+
+        //超时未确认，被回收
+        assert "3".equals(queue.take());
+        Thread.sleep(1100);
+        queue.reap(); //也可能已被定时任务回收
+        assert queue.size() == 1;
+        assert queue.ack("3") == false;
+
+        assert "3".equals(queue.take());
+        assert queue.ack("3");
+
+        //空时阻塞到超时
+        assert queue.take(1) == null;
+
+        //同样的消息，各自有截止时间
+        queue.add("x");
+        queue.add("x");
+        assert "x".equals(queue.take());
+        Thread.sleep(600);
+        assert "x".equals(queue.take()); //不会延长第一个的截止时间
+        Thread.sleep(600);
+        queue.reap(); //也可能已被定时任务回收
+        assert queue.size() == 1; //只回收超时的第一个
+        assert queue.processingSize() == 1;
+
+        assert queue.touch("x");
+        assert queue.ack("x");
+        assert "x".equals(queue.take());
+        assert queue.ack("x");
+        assert queue.processingSize() == 0;
+
+        //pop 系列会绕过处理中列表，不支持
+        try {
+            queue.pop();
+            assert false;
+        } catch (UnsupportedOperationException e) {
+            //预期
+        }
+    }
+
+    @Test
+    public void test_queue_batch() {
+        RedisQueue queue = client.getQueue("queue:batch:test");
+        queue.clear();
+
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            items.add(String.valueOf(i));
+        }
+
+        //超过 1000 个时，按批管道发送
+        queue.addAll(items);
+        assert queue.size() == 2500;
+
+        List<String> first = queue.pop(10);
+        assert first.size() == 10;
+        assert "0".equals(first.get(0));
+        assert "9".equals(first.get(9));
+
+        List<String> drained = new ArrayList<>();
+        long total = queue.drain(1000, drained::addAll);
+        assert total == 2490;
+        assert "10".equals(drained.get(0));
+        assert "2499".equals(drained.get(2489));
+
+        assert queue.pop(10).isEmpty();
+
+        //按批 popAll 消费异常时，本批未消费的放回队列（按原顺序）
+        queue.addAll(items.subList(0, 10));
+        try {
+            queue.popAll(1000, item -> {
+                if ("3".equals(item)) {
+                    throw new IllegalStateException();
+                }
+            });
+            assert false;
+        } catch (IllegalStateException e) {
+            //预期
+        }
+        assert queue.size() == 6;
+        assert "4".equals(queue.pop());
+        assert "9".equals(queue.pop(5).get(4));
+    }
+
+    @Test
+    public void test_queue_listen() throws Exception {
+        RedisQueue queue = client.getQueue("queue:listen:test");
+        queue.clear();
+
+        CountDownLatch latch = new CountDownLatch(100);
+        Set<String> handled = ConcurrentHashMap.newKeySet();
+
+        try (RedisQueueListener listener = queue.listen(item -> {
+            handled.add(item);
+            latch.countDown();
+        }, 8)) {
+            for (int i = 0; i < 100; i++) {
+                queue.add(String.valueOf(i));
+            }
+
+            assert latch.await(10, TimeUnit.SECONDS);
+            Thread.sleep(100);
+
+            assert handled.size() == 100;
+            assert listener.received() == 100;
+            assert listener.succeeded() == 100;
+            assert listener.inFlight() == 0;
+            System.out.println("test_queue_listen: throughput=" + listener.throughput()
+                    + "/s, latencyAvg=" + listener.latencyAvgMillis() + "ms");
+        }
+
+        assert queue.size() == 0;
+    }
+
+    @Test
+    public void test_queue_listen_reliable() throws Exception {
+        String queueName = "queue:listen:reliable:test";
+        client.getQueue(queueName).clear();
+
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        RedisReliableQueue queue = client.getReliableQueue(queueName, "c1", 30);
+
+        try (RedisQueueListener listener = queue.listen(item -> {
+            //第一次失败，否认后会再次推出
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("retry");
+            }
+            latch.countDown();
+        }, 2)) {
+
+            queue.add("1");
+
+            assert latch.await(10, TimeUnit.SECONDS);
+            Thread.sleep(100);
+
+            assert listener.failed() == 1;
+            assert listener.succeeded() == 1;
+            assert queue.processingSize() == 0;
+        }
+    }
+
+    @Test
+    public void test_bus_stream() throws Exception {
+        String topic = "stream:test";
+        client.open(s -> s.key(topic).delete());
+
+        RedisStreamBus bus = client.getStreamBus(1000);
+
+        //同组的两个消费者分摊消费
+        Set<String> received = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(100);
+        BiConsumer<String, String> subscriber = (t, message) -> {
+            received.add(message);
+            latch.countDown();
+        };
+
+        try (RedisStreamSubscription sub1 = bus.subscribe(topic, "group1", "c1", subscriber);
+             RedisStreamSubscription sub2 = bus.subscribe(topic, "group1", "c2", subscriber)) {
+            for (int i = 0; i < 100; i++) {
+                bus.publish(topic, String.valueOf(i));
+            }
+
+            assert latch.await(10, TimeUnit.SECONDS);
+            assert received.size() == 100;
+        }
+
+        assert bus.size(topic) == 100;
+        assert bus.pending(topic, "group1") == 0;
+    }
+
+    @Test
+    public void test_bus_stream_claim() throws Exception {
+        String topic = "stream:claim:test";
+        client.open(s -> s.key(topic).delete());
+
+        RedisStreamBus bus = client.getStreamBus();
+
+        //第一次处理失败不确认，超过认领时间后再次处理
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        try (RedisStreamSubscription sub = bus.subscribe(topic, "group1", "c1", (t, message) -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("retry");
+            }
+            latch.countDown();
+        }, 10, 200, 500)) {
+            bus.publish(topic, "hello");
+
+            assert latch.await(10, TimeUnit.SECONDS);
+        }
+
+        assert attempts.get() == 2;
+        assert bus.pending(topic, "group1") == 0;
+    }
+
+    @Test
+    public void test_bus_stream_dead() throws Exception {
+        String topic = "stream:dead:test";
+        String deadTopic = topic + ":dead";
+        client.open(s -> s.key(topic).delete());
+        client.open(s -> s.key(deadTopic).delete());
+
+        RedisStreamBus bus = client.getStreamBus();
+
+        //一直失败，投递超过 2 次后转入死信流
+        AtomicInteger attempts = new AtomicInteger();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+        try (RedisStreamSubscription sub = bus.subscribe(topic, "group1", "c1", (t, message) -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("fail");
+        }, 10, 200, 300, 2, null, (message, e) -> errors.add(e))) {
+            assert deadTopic.equals(sub.deadLetterTopic());
+
+            bus.publish(topic, "hello");
+
+            for (int i = 0; i < 50 && bus.size(deadTopic) == 0; i++) {
+                Thread.sleep(100);
+            }
+        }
+
+        assert bus.size(deadTopic) == 1;
+        assert bus.pending(topic, "group1") == 0;
+        assert attempts.get() == 2;
+        assert errors.size() == 2;
+        assert errors.get(0) instanceof IllegalStateException;
+    }
+
+    @Test
+    public void test_publisher_close() throws Exception {
+        RedisPublisher publisher = new RedisPublisher(client, 10, 5, false);
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(publisher.publish("topic:publisher:test", String.valueOf(i)));
+        }
+
+        //关闭时发送完已入队的
+        publisher.close();
+        for (CompletableFuture<Long> future : futures) {
+            assert future.isDone() && future.isCompletedExceptionally() == false;
+        }
+
+        //关闭后发布，直接失败
+        assert publisher.publish("topic:publisher:test", "after").isCompletedExceptionally();
+        assert publisher.pending() == 0;
+    }
+
+    @Test
+    public void test_bus_shared() throws Exception {
+        RedisBus bus = client.getBus();
+
+        //同一频道按发布顺序处理
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(100);
+
+        RedisSubscriber.Subscription sub1 = bus.subscribeShared((topic, message) -> {
+            received.add(message);
+            latch.countDown();
+        }, "topic:shared:1");
+
+        //动态增加频道（共用同一个连接）
+        CountDownLatch latch2 = new CountDownLatch(1);
+        List<String> topics2 = Collections.synchronizedList(new ArrayList<>());
+        RedisSubscriber.Subscription sub2 = bus.psubscribeShared((topic, message) -> {
+            topics2.add(topic);
+            latch2.countDown();
+        }, "topic:shared:p:*");
+
+        //处理器异常，交给异常回调
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch3 = new CountDownLatch(1);
+        client.subscriber().errorHandler((topic, e) -> {
+            errors.add(e);
+            latch3.countDown();
+        });
+        RedisSubscriber.Subscription sub3 = bus.subscribeShared((topic, message) -> {
+            throw new IllegalStateException("fail");
+        }, "topic:shared:err");
+
+        Thread.sleep(500); //等订阅就绪
+
+        for (int i = 0; i < 100; i++) {
+            bus.publish("topic:shared:1", String.valueOf(i));
+        }
+        bus.publish("topic:shared:p:1", "hello");
+        bus.publish("topic:shared:err", "hello");
+
+        assert latch.await(5, TimeUnit.SECONDS);
+        assert latch2.await(5, TimeUnit.SECONDS);
+        assert latch3.await(5, TimeUnit.SECONDS);
+
+        //在测试线程上断言（处理线程上的断言失败不会让测试失败）
+        assert topics2.size() == 1 && "topic:shared:p:1".equals(topics2.get(0));
+        assert errors.get(0) instanceof IllegalStateException;
+
+        sub3.close();
+        client.subscriber().errorHandler(null);
+
+        for (int i = 0; i < 100; i++) {
+            assert String.valueOf(i).equals(received.get(i));
+        }
+
+        //取消后不再收到
+        sub1.close();
+        sub2.close();
+        assert client.subscriber().channels().contains("topic:shared:1") == false;
+
+        Thread.sleep(200);
+        bus.publish("topic:shared:1", "after");
+        Thread.sleep(200);
+        assert received.size() == 100;
+    }
+
+    @Test
+    public void test_bus_publishAsync() throws Exception {
+        RedisBus bus = client.getBus();
+
+        CountDownLatch latch = new CountDownLatch(1000);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        RedisSubscriber.Subscription sub = bus.subscribeShared((topic, message) -> {
+            received.add(message);
+            latch.countDown();
+        }, "topic:publish:test");
+
+        Thread.sleep(500); //等订阅就绪
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(bus.publishAsync("topic:publish:test", String.valueOf(i)));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Long> future : futures) {
+            assert future.get() == 1L; //一个订阅者
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS);
+
+        //同一个发布器内按顺序发送
+        for (int i = 0; i < 1000; i++) {
+            assert String.valueOf(i).equals(received.get(i));
+        }
+
+        sub.close();
+    }
+
+    @Test
+    public void test_bus_sharded() throws Exception {
+        RedisBus bus = client.getBus();
+
+        CountDownLatch latch = new CountDownLatch(200);
+        Map<String, List<String>> received = new ConcurrentHashMap<>();
+        RedisSubscriber.Subscription sub = bus.ssubscribe((topic, message) -> {
+            received.computeIfAbsent(topic, k -> Collections.synchronizedList(new ArrayList<>())).add(message);
+            latch.countDown();
+        }, "topic:sharded:1", "topic:sharded:2");
+
+        Thread.sleep(500); //等订阅就绪
+
+        for (int i = 0; i < 100; i++) {
+            bus.spublish("topic:sharded:1", String.valueOf(i));
+            bus.spublishAsync("topic:sharded:2", String.valueOf(i));
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS);
+
+        //同一频道按顺序分发
+        for (int i = 0; i < 100; i++) {
+            assert String.valueOf(i).equals(received.get("topic:sharded:1").get(i));
+            assert String.valueOf(i).equals(received.get("topic:sharded:2").get(i));
+        }
+
+        assert client.shardedSubscriber().shardCount() >= 1;
+
+        sub.close();
+        Thread.sleep(200);
+        assert bus.spublish("topic:sharded:1", "after") == 0L;
+    }
+
+    @Test
+    public void test_hash_cached() throws Exception {
+        client.getHash("hash:cached:test").clear();
+
+        try (RedisCachedHash hash1 = client.getCachedHash("hash:cached:test", -1, 100, 10, 60);
+             RedisCachedHash hash2 = client.getCachedHash("hash:cached:test", -1, 100, 10, 60)) {
+            for (int i = 0; i < 5000; i++) {
+                hash1.put("f" + i, String.valueOf(i));
+            }
+
+            //未写入前，本地即可见
+            assert hash1.size() == 5000;
+            assert "1".equals(hash1.get("f1"));
+
+            hash1.flush();
+            assert hash1.pendingSize() == 0;
+
+            //大哈希用 HSCAN 加载
+            assert hash2.size() == 5000;
+
+            int count = 0;
+            for (Map.Entry<String, String> kv : hash2.entrySet()) {
+                assert kv.getKey().equals("f" + kv.getValue());
+                count++;
+            }
+            assert count == 5000;
+
+            //变更通知到其它节点
+            hash1.put("f1", "x");
+            hash1.flush();
+            Thread.sleep(200);
+            assert "x".equals(hash2.get("f1"));
+
+            //获取并删除
+            assert "x".equals(hash2.remove("f1"));
+            assert hash2.get("f1") == null;
+            Thread.sleep(200);
+            assert hash1.containsKey("f1") == false;
+            assert client.getHash("hash:cached:test").remove("f1") == null;
+
+            //字段名为 * 的，只是普通字段
+            hash1.put("*", "star");
+            hash1.flush();
+            Thread.sleep(200);
+            assert "star".equals(hash2.get("*"));
+            assert hash2.containsKey("f2");
+
+            //二进制值不进快照（其它节点也移出）
+            hash1.putBytes("b1", new byte[]{1, 2, 3});
+            assert hash1.containsKey("b1") == false;
+            assert hash1.getBytes("b1").length == 3;
+            Thread.sleep(200);
+            assert hash2.containsKey("b1") == false;
+
+            hash1.clear();
+            Thread.sleep(200);
+            assert hash2.isEmpty();
+        }
+
+        //未关闭的，关闭客户端时写入
+        try (RedisClient client2 = new RedisClient(clientProps)) {
+            RedisCachedHash hash3 = client2.getCachedHash("hash:cached:test", -1, 100, 60_000, 60);
+            hash3.put("f1", "y");
+        }
+        assert "y".equals(client.getHash("hash:cached:test").get("f1"));
+    }
+
+    @Test
+    public void test_hash_more() {
+        RedisHash redisHash = client.getHash("hash:more:test");
+        redisHash.clear();
+
+        Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            map.put("f" + i, i);
+        }
+        redisHash.putAllAndSerialize(map);
+        assert redisHash.size() == 3000;
+
+        List<String> raws = redisHash.getMore("f1", "none");
+        assert raws.size() == 2;
+        assert raws.get(1) == null;
+
+        //超过阈值，并行反序列化（按字段顺序返回）
+        String[] fields = map.keySet().toArray(new String[0]);
+        List<Integer> vals = redisHash.getMoreAndDeserialize(Integer.class, fields);
+        for (int i = 0; i < fields.length; i++) {
+            assert vals.get(i).equals(map.get(fields[i]));
+        }
+
+        Map<String, Integer> all = redisHash.getAllAndDeserialize(Integer.class);
+        assert all.equals(map);
+
+        assert redisHash.<Integer>scanAndDeserialize("f1*", 500, Integer.class)
+                .allMatch(kv -> kv.getKey().equals("f" + kv.getValue()));
+        assert redisHash.scan("*", 500).count() == 3000;
+
+        //缓存哈希走本地快照
+        try (RedisCachedHash cached = client.getCachedHash("hash:more:test")) {
+            assert cached.getAllAndDeserialize(Integer.class).equals(map);
+            assert cached.<Integer>getMoreAndDeserialize(Integer.class, "f2").get(0) == 2;
+        }
+    }
 }
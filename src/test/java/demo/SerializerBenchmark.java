@@ -0,0 +1,94 @@
+package demo;
+
+import demo.model.OrderDo;
+import demo.model.UserDo;
+import org.noear.redisx.Serializer;
+import org.noear.redisx.utils.SerializerCompact;
+import org.noear.redisx.utils.SerializerDefault;
+import org.noear.redisx.utils.SerializerDeflate;
+import org.noear.redisx.utils.SerializerJson;
+import org.noear.redisx.utils.SerializerJsonNoType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化性能对比（JMH；不需要 redis）
+ * <p>
+ * 运行：在 IDE 里执行 main，或 mvn test-compile 后以 test classpath 运行本类
+ *
+ * @author noear 2026/10/18 created
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+    @Param({"default", "json", "json-notype", "compact", "deflate"})
+    public String name;
+
+    private Serializer serializer;
+    private UserDo userDo;
+    private OrderDo orderDo;
+    private String userStr;
+    private String orderStr;
+
+    @Setup
+    public void setup() {
+        switch (name) {
+            case "json":
+                serializer = new SerializerJson();
+                break;
+            case "json-notype":
+                serializer = new SerializerJsonNoType();
+                break;
+            case "compact":
+                serializer = new SerializerCompact().register(UserDo.class, OrderDo.class);
+                break;
+            case "deflate":
+                serializer = new SerializerDeflate();
+                break;
+            default:
+                serializer = new SerializerDefault();
+                break;
+        }
+
+        userDo = SerializerTest.buildUser();
+        orderDo = SerializerTest.buildOrder();
+        userStr = serializer.encode(userDo);
+        orderStr = serializer.encode(orderDo);
+    }
+
+    @Benchmark
+    public String encodeUser() {
+        return serializer.encode(userDo);
+    }
+
+    @Benchmark
+    public Object decodeUser() {
+        return serializer.decode(userStr, UserDo.class);
+    }
+
+    @Benchmark
+    public String encodeOrder() {
+        return serializer.encode(orderDo);
+    }
+
+    @Benchmark
+    public Object decodeOrder() {
+        return serializer.decode(orderStr, OrderDo.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SerializerBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(options).run();
+    }
+}
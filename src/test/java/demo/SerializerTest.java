@@ -0,0 +1,110 @@
+package demo;
+
+import demo.model.OrderDo;
+import demo.model.UserDo;
+import org.junit.jupiter.api.Test;
+import org.noear.redisx.utils.SerializerCompact;
+import org.noear.redisx.utils.SerializerDefault;
+import org.noear.redisx.utils.SerializerDeflate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 序列化测试（不需要 redis；性能对比见 SerializerBenchmark）
+ *
+ * @author noear 2026/10/18 created
+ */
+public class SerializerTest {
+    static UserDo buildUser() {
+        UserDo userDo = new UserDo();
+        userDo.id = 1213;
+        userDo.name = "noear";
+        userDo.create_lat = 29.123456;
+        userDo.create_lng = 121.654321;
+        userDo.create_time = new Date();
+        return userDo;
+    }
+
+    static OrderDo buildOrder() {
+        OrderDo orderDo = new OrderDo();
+        orderDo.id = 2001;
+        orderDo.traceId = "a1b2c3d4e5f6";
+        orderDo.note = "hello world";
+        return orderDo;
+    }
+
+    @Test
+    public void test_compact() {
+        SerializerCompact serializer = new SerializerCompact().register(UserDo.class, OrderDo.class);
+
+        UserDo userDo = buildUser();
+        UserDo userDo1 = (UserDo) serializer.decodeBytes(serializer.encodeBytes(userDo), UserDo.class);
+
+        assert userDo1.id == userDo.id;
+        assert userDo1.name.equals(userDo.name);
+        assert userDo1.create_lat == userDo.create_lat;
+        assert userDo1.create_time.equals(userDo.create_time);
+
+        OrderDo orderDo = buildOrder();
+        OrderDo orderDo1 = (OrderDo) serializer.decode(serializer.encode(orderDo), OrderDo.class);
+
+        assert orderDo1.id == orderDo.id;
+        assert orderDo1.traceId.equals(orderDo.traceId);
+
+        //未注册的类（写类名）
+        SerializerCompact serializer2 = new SerializerCompact();
+        OrderDo orderDo2 = (OrderDo) serializer2.decodeBytes(serializer2.encodeBytes(orderDo), OrderDo.class);
+        assert orderDo2.note.equals(orderDo.note);
+    }
+
+    static class FinalDo {
+        final long id;
+        final String name;
+
+        FinalDo() {
+            this(0, null);
+        }
+
+        FinalDo(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    @Test
+    public void test_compact_final() {
+        SerializerCompact serializer = new SerializerCompact().register(FinalDo.class);
+
+        //final 字段也按字段写入（不回退为 Java 序列化）
+        FinalDo finalDo = (FinalDo) serializer.decodeBytes(serializer.encodeBytes(new FinalDo(12, "noear")), FinalDo.class);
+        assert finalDo.id == 12;
+        assert "noear".equals(finalDo.name);
+    }
+
+    @Test
+    public void test_deflate() {
+        SerializerDefault serializer = new SerializerDefault();
+        SerializerDeflate deflate = new SerializerDeflate(serializer, 1024);
+
+        List<UserDo> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(buildUser());
+        }
+
+        String str = deflate.encode(list);
+        byte[] bytes = deflate.encodeBytes(list);
+        System.out.println("deflate str: " + serializer.encode(list).length() + " -> " + str.length()
+                + ", bin: " + serializer.encodeBytes(list).length + " -> " + bytes.length);
+
+        assert str.length() < serializer.encode(list).length();
+        assert ((List<UserDo>) deflate.decode(str, List.class)).size() == 1000;
+        assert ((List<UserDo>) deflate.decodeBytes(bytes, List.class)).size() == 1000;
+
+        //小于阈值不压缩；旧的未压缩数据仍可读取
+        UserDo userDo = buildUser();
+        assert deflate.encode(userDo).equals(serializer.encode(userDo));
+        assert ((UserDo) deflate.decode(serializer.encode(list.get(0)), UserDo.class)).id == 1213;
+    }
+}